@@ -0,0 +1,19 @@
+package ru.berdennikov.wishlist.exception;
+
+import ru.berdennikov.wishlist.service.similar.SimilarGift;
+
+import java.util.List;
+
+public class DuplicateGiftException extends RuntimeException {
+
+    private final List<SimilarGift> similar;
+
+    public DuplicateGiftException(String title, List<SimilarGift> similar) {
+        super(String.format("Gifts similar to '%s' already exist", title));
+        this.similar = List.copyOf(similar);
+    }
+
+    public List<SimilarGift> getSimilar() {
+        return similar;
+    }
+}
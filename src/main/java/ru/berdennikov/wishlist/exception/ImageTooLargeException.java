@@ -0,0 +1,7 @@
+package ru.berdennikov.wishlist.exception;
+
+public class ImageTooLargeException extends RuntimeException {
+    public ImageTooLargeException(long maxSize) {
+        super(String.format("Image is larger than %d bytes", maxSize));
+    }
+}
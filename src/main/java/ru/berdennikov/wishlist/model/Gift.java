@@ -1,14 +1,25 @@
 package ru.berdennikov.wishlist.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.SQLRestriction;
+
+import java.time.Instant;
 
 /**
- * Подарок
+ * Подарок.
+ * <p>
+ * Удаление мягкое: подарок помечается временем удаления и перестает попадать в выборки,
+ * позже фоновая задача переносит такие подарки в архив
  */
 @Entity
-@Table(name = "gift")
+@Table(name = "gift", indexes = @Index(name = "gift_importance_sort_key_idx", columnList = "importance, sort_key, id"))
+@SQLDelete(sql = "update gift set deleted_at = current_timestamp where id = ?")
+@SQLRestriction("deleted_at is null")
 public class Gift {
 
     /**
@@ -36,6 +47,20 @@ public class Gift {
     @Enumerated(EnumType.STRING)
     private Importance importance;
 
+    /**
+     * Ключ пользовательского порядка внутри важности, см. {@link ru.berdennikov.wishlist.service.RankKeys}
+     */
+    @Column(name = "sort_key")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String sortKey;
+
+    /**
+     * Время удаления, {@code null} для действующих подарков
+     */
+    @Column(name = "deleted_at")
+    @JsonIgnore
+    private Instant deletedAt;
+
     public Gift() {
     }
 
@@ -82,6 +107,22 @@ public class Gift {
         this.importance = importance;
     }
 
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(String sortKey) {
+        this.sortKey = sortKey;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
 
     @Override
     public String toString() {
@@ -90,6 +131,7 @@ public class Gift {
                 ", title='" + title + '\'' +
                 ", description='" + description + '\'' +
                 ", importance=" + importance +
+                ", sortKey='" + sortKey + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,46 @@
+package ru.berdennikov.wishlist.model;
+
+import java.time.Instant;
+
+/**
+ * Запись истории изменений подарка: состояние подарка сразу после изменения
+ *
+ * @param changeId    порядковый номер изменения
+ * @param giftId      идентификатор подарка
+ * @param changedAt   время изменения
+ * @param operation   вид изменения
+ * @param title       название
+ * @param description описание
+ * @param importance  важность
+ */
+public record GiftChange(long changeId, long giftId, Instant changedAt, Operation operation,
+                         String title, String description, Importance importance) {
+
+    public enum Operation {
+        CREATED("I"),
+        UPDATED("U"),
+        DELETED("D"),
+        /**
+         * Состояние подарка на начало сохраненной истории, более ранние изменения удалены вместе с секциями
+         */
+        BASELINE("B");
+
+        private final String code;
+
+        Operation(String code) {
+            this.code = code;
+        }
+
+        /**
+         * @param code значение столбца operation в таблице gift_history
+         */
+        public static Operation of(String code) {
+            for (Operation operation : values()) {
+                if (operation.code.equals(code)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown gift history operation " + code);
+        }
+    }
+}
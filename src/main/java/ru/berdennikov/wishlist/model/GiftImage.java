@@ -0,0 +1,17 @@
+package ru.berdennikov.wishlist.model;
+
+import java.time.Instant;
+
+/**
+ * Изображение подарка. В базе данных хранятся только метаданные, содержимое лежит на диске
+ * по хешу SHA-256, поэтому одинаковые изображения хранятся в одном экземпляре
+ *
+ * @param id          уникальный идентификатор
+ * @param giftId      идентификатор подарка
+ * @param hash        SHA-256 содержимого в шестнадцатеричном виде, адрес изображения {@code /api/images/{hash}}
+ * @param contentType тип содержимого, определенный по первым байтам файла
+ * @param size        размер в байтах
+ * @param createdAt   время загрузки
+ */
+public record GiftImage(Long id, Long giftId, String hash, String contentType, long size, Instant createdAt) {
+}
@@ -0,0 +1,15 @@
+package ru.berdennikov.wishlist.model;
+
+/**
+ * Позиция подарка в списке подарков, с которой продолжается следующая страница
+ *
+ * @param importance важность подарка
+ * @param sortKey    ключ порядка подарка
+ * @param id         идентификатор подарка
+ */
+public record GiftPosition(Importance importance, String sortKey, Long id) {
+
+    public static GiftPosition of(Gift gift) {
+        return new GiftPosition(gift.getImportance(), gift.getSortKey(), gift.getId());
+    }
+}
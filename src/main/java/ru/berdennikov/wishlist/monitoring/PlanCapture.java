@@ -0,0 +1,139 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимает планы выполнения {@code EXPLAIN (ANALYZE, BUFFERS)} для найденных запросов на PostgreSQL.
+ * <p>
+ * Планы снимаются в отдельном потоке через исходный (не перехватываемый) источник данных, в транзакции
+ * только для чтения и только для SELECT, так как ANALYZE выполняет запрос. Если очередь заполнена, запрос
+ * пропускается, а один и тот же запрос повторно не разбирается чаще {@code explainInterval}
+ */
+class PlanCapture implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanCapture.class);
+
+    private static final int QUEUE_CAPACITY = 16;
+    private static final int MAX_PLANS = 100;
+
+    private final DataSource dataSource;
+    private final long intervalNanos;
+    private final int timeoutSeconds;
+    private final ExecutorService executor;
+    private final Map<String, Long> lastCaptured = lru();
+    private final Map<String, String> plans = lru();
+    private volatile Boolean postgres;
+
+    PlanCapture(DataSource dataSource, Duration interval, Duration timeout) {
+        this.dataSource = dataSource;
+        this.intervalNanos = interval.toNanos();
+        this.timeoutSeconds = (int) Math.max(1, timeout.toSeconds());
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "query-plan-capture");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Ставит запрос в очередь на снятие плана
+     *
+     * @param sql        текст запроса
+     * @param parameters параметры запроса по порядку
+     */
+    void capture(String sql, Object[] parameters) {
+        if (Boolean.FALSE.equals(postgres) || !isSelect(sql)) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (lastCaptured) {
+            Long previous = lastCaptured.get(sql);
+            if (previous != null && now - previous < intervalNanos) {
+                return;
+            }
+            lastCaptured.put(sql, now);
+        }
+        executor.execute(() -> explain(sql, parameters));
+    }
+
+    Map<String, String> plans() {
+        synchronized (plans) {
+            return new LinkedHashMap<>(plans);
+        }
+    }
+
+    void clear() {
+        plans.clear();
+        lastCaptured.clear();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void explain(String sql, Object[] parameters) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (postgres == null) {
+                postgres = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            }
+            if (!postgres) {
+                return;
+            }
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+                statement.setQueryTimeout(timeoutSeconds);
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+                plans.put(sql, plan.toString());
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Failed to capture plan for query {}: {}", sql, e.getMessage());
+        }
+    }
+
+    /**
+     * Запросы с подстановкой значений в текст не повторяются, поэтому хранятся только последние
+     * {@code MAX_PLANS} запросов
+     */
+    private static <V> Map<String, V> lru() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_PLANS;
+            }
+        });
+    }
+
+    private static boolean isSelect(String sql) {
+        String start = sql.stripLeading();
+        return start.length() >= 6 && start.substring(0, 6).toLowerCase(Locale.ROOT).equals("select");
+    }
+}
@@ -0,0 +1,30 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import java.time.Instant;
+
+/**
+ * Найденный медленный или повторяющийся SQL запрос
+ *
+ * @param type           вид находки
+ * @param sql            текст запроса
+ * @param count          сколько раз запрос выполнен за HTTP запрос (для медленного запроса - 1)
+ * @param durationMillis время выполнения, для повторяющегося запроса - суммарное
+ * @param request        HTTP запрос, во время которого выполнялся SQL запрос, или {@code null}
+ * @param detectedAt     время обнаружения
+ */
+public record QueryFinding(Type type, String sql, int count, long durationMillis, String request, Instant detectedAt) {
+
+    /**
+     * Вид находки
+     */
+    public enum Type {
+        /**
+         * Запрос выполнялся дольше порога
+         */
+        SLOW,
+        /**
+         * Один и тот же запрос много раз за один HTTP запрос
+         */
+        N_PLUS_ONE
+    }
+}
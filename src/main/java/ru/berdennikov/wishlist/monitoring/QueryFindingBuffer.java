@@ -0,0 +1,42 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кольцевой буфер последних находок. При переполнении вытесняются самые старые
+ */
+class QueryFindingBuffer {
+
+    private final QueryFinding[] findings;
+    private int next;
+    private int size;
+
+    QueryFindingBuffer(int capacity) {
+        this.findings = new QueryFinding[capacity];
+    }
+
+    synchronized void add(QueryFinding finding) {
+        findings[next] = finding;
+        next = (next + 1) % findings.length;
+        size = Math.min(size + 1, findings.length);
+    }
+
+    /**
+     * @return находки, начиная с самой новой
+     */
+    synchronized List<QueryFinding> snapshot() {
+        List<QueryFinding> result = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            result.add(findings[(next - i + findings.length) % findings.length]);
+        }
+        return result;
+    }
+
+    synchronized void clear() {
+        Arrays.fill(findings, null);
+        next = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,162 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Учет выполненных SQL запросов: поиск медленных запросов и повторов одного запроса за HTTP запрос (N+1).
+ * <p>
+ * Статистика HTTP запроса хранится в {@link ThreadLocal} между {@link #beginRequest(String)} и {@link #endRequest()},
+ * поэтому учет каждого SQL запроса - это поиск в небольшой хеш-таблице без блокировок.
+ * Находки складываются в кольцевой буфер, планы выполнения снимает {@link PlanCapture}
+ */
+public class QueryInsights implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryInsights.class);
+
+    private static final ThreadLocal<RequestStatistics> CURRENT_REQUEST = new ThreadLocal<>();
+
+    private final QueryInsightsProperties properties;
+    private final long slowThresholdNanos;
+    private final QueryFindingBuffer findings;
+    private final DistributionSummary statementsPerRequest;
+    private volatile PlanCapture planCapture;
+
+    public QueryInsights(QueryInsightsProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.slowThresholdNanos = properties.slowThreshold().toNanos();
+        this.findings = new QueryFindingBuffer(properties.bufferSize());
+        this.statementsPerRequest = DistributionSummary.builder("wishlist.jdbc.request.statements")
+                .description("SQL statements executed per HTTP request")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Оборачивает источник данных для учета запросов. Планы снимаются через исходный источник
+     */
+    public DataSource wrap(DataSource dataSource) {
+        if (properties.explain() && planCapture == null) {
+            planCapture = new PlanCapture(dataSource, properties.explainInterval(), properties.explainTimeout());
+        }
+        return new QueryInsightsDataSource(dataSource, this);
+    }
+
+    /**
+     * Начинает учет запросов HTTP запроса в текущем потоке
+     *
+     * @param request описание запроса, например {@code GET /api/gifts}
+     */
+    public void beginRequest(String request) {
+        CURRENT_REQUEST.set(new RequestStatistics(request));
+    }
+
+    /**
+     * Завершает учет запросов HTTP запроса в текущем потоке и ищет повторяющиеся запросы
+     */
+    public void endRequest() {
+        RequestStatistics request = CURRENT_REQUEST.get();
+        CURRENT_REQUEST.remove();
+        if (request == null) {
+            return;
+        }
+        statementsPerRequest.record(request.total);
+        request.statements.forEach((sql, statistics) -> {
+            if (statistics.count >= properties.repeatedThreshold()) {
+                log.warn("Query executed {} times during {}: {}", statistics.count, request.description, sql);
+                findings.add(new QueryFinding(QueryFinding.Type.N_PLUS_ONE, sql, statistics.count,
+                        statistics.nanos / 1_000_000, request.description, Instant.now()));
+                capturePlan(sql, statistics.lastParameters);
+            }
+        });
+    }
+
+    /**
+     * Учитывает выполненный SQL запрос
+     *
+     * @param sql        текст запроса
+     * @param nanos      время выполнения
+     * @param parameters параметры запроса по порядку
+     */
+    void record(String sql, long nanos, Object[] parameters) {
+        RequestStatistics request = CURRENT_REQUEST.get();
+        if (request != null) {
+            request.add(sql, nanos, parameters);
+        }
+        if (nanos >= slowThresholdNanos) {
+            log.warn("Slow query took {} ms: {}", nanos / 1_000_000, sql);
+            findings.add(new QueryFinding(QueryFinding.Type.SLOW, sql, 1, nanos / 1_000_000,
+                    request != null ? request.description : null, Instant.now()));
+            capturePlan(sql, parameters);
+        }
+    }
+
+    /**
+     * @return последние находки, начиная с самой новой
+     */
+    public List<QueryFinding> findings() {
+        return findings.snapshot();
+    }
+
+    /**
+     * @return снятые планы выполнения по тексту запроса
+     */
+    public Map<String, String> plans() {
+        PlanCapture capture = planCapture;
+        return capture != null ? capture.plans() : Map.of();
+    }
+
+    public void clear() {
+        findings.clear();
+        PlanCapture capture = planCapture;
+        if (capture != null) {
+            capture.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        PlanCapture capture = planCapture;
+        if (capture != null) {
+            capture.close();
+        }
+    }
+
+    private void capturePlan(String sql, Object[] parameters) {
+        PlanCapture capture = planCapture;
+        if (capture != null) {
+            capture.capture(sql, parameters);
+        }
+    }
+
+    private static final class RequestStatistics {
+        private final String description;
+        private final Map<String, StatementStatistics> statements = new HashMap<>();
+        private int total;
+
+        RequestStatistics(String description) {
+            this.description = description;
+        }
+
+        void add(String sql, long nanos, Object[] parameters) {
+            total++;
+            StatementStatistics statistics = statements.computeIfAbsent(sql, key -> new StatementStatistics());
+            statistics.count++;
+            statistics.nanos += nanos;
+            statistics.lastParameters = parameters;
+        }
+    }
+
+    private static final class StatementStatistics {
+        private int count;
+        private long nanos;
+        private Object[] lastParameters;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Подключает поиск медленных и повторяющихся SQL запросов: оборачивает источник данных,
+ * регистрирует фильтр HTTP запросов и actuator endpoint {@code queryinsights}
+ */
+@Configuration
+@EnableConfigurationProperties(QueryInsightsProperties.class)
+@ConditionalOnProperty(prefix = "wishlist.query-insights", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class QueryInsightsConfig {
+
+    @Bean(destroyMethod = "close")
+    public QueryInsights queryInsights(QueryInsightsProperties properties, MeterRegistry meterRegistry) {
+        return new QueryInsights(properties, meterRegistry);
+    }
+
+    /**
+     * Статический, чтобы не создавать конфигурацию раньше остальных постпроцессоров
+     */
+    @Bean
+    public static BeanPostProcessor queryInsightsDataSourcePostProcessor(ObjectProvider<QueryInsights> insights) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof QueryInsightsDataSource)) {
+                    return insights.getObject().wrap(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryInsightsFilter> queryInsightsFilter(QueryInsights insights) {
+        return new FilterRegistrationBean<>(new QueryInsightsFilter(insights));
+    }
+
+    @Bean
+    public QueryInsightsEndpoint queryInsightsEndpoint(QueryInsights insights) {
+        return new QueryInsightsEndpoint(insights);
+    }
+}
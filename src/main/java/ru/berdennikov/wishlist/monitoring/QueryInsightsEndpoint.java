@@ -0,0 +1,40 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Находки медленных и повторяющихся SQL запросов: {@code GET /actuator/queryinsights}.
+ * {@code DELETE /actuator/queryinsights} очищает находки и планы. Доступ не проверяется, поэтому endpoint
+ * открыт только на порту {@code management.server.port}, недоступном снаружи
+ */
+@Endpoint(id = "queryinsights")
+public class QueryInsightsEndpoint {
+
+    private final QueryInsights insights;
+
+    public QueryInsightsEndpoint(QueryInsights insights) {
+        this.insights = insights;
+    }
+
+    @ReadOperation
+    public Report report() {
+        return new Report(insights.findings(), insights.plans());
+    }
+
+    @DeleteOperation
+    public void clear() {
+        insights.clear();
+    }
+
+    /**
+     * @param findings последние находки, начиная с самой новой
+     * @param plans    планы выполнения по тексту запроса
+     */
+    public record Report(List<QueryFinding> findings, Map<String, String> plans) {
+    }
+}
@@ -0,0 +1,32 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Ограничивает учет SQL запросов рамками HTTP запроса, чтобы находить повторы за один запрос
+ */
+class QueryInsightsFilter extends OncePerRequestFilter {
+
+    private final QueryInsights insights;
+
+    QueryInsightsFilter(QueryInsights insights) {
+        this.insights = insights;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        insights.beginRequest(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            insights.endRequest();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки поиска медленных и повторяющихся SQL запросов
+ *
+ * @param enabled           включен ли перехват SQL запросов
+ * @param slowThreshold     запросы дольше этого времени считаются медленными
+ * @param repeatedThreshold одинаковый запрос, выполненный за один HTTP запрос столько раз или больше, считается N+1
+ * @param bufferSize        сколько последних находок хранить
+ * @param explain           снимать ли план выполнения медленных и повторяющихся запросов на PostgreSQL
+ * @param explainInterval   не чаще скольких раз в этот интервал снимать план одного и того же запроса
+ * @param explainTimeout    ограничение времени на снятие плана
+ */
+@ConfigurationProperties(prefix = "wishlist.query-insights")
+public record QueryInsightsProperties(@DefaultValue("true") boolean enabled,
+                                      @DefaultValue("200ms") Duration slowThreshold,
+                                      @DefaultValue("5") int repeatedThreshold,
+                                      @DefaultValue("200") int bufferSize,
+                                      @DefaultValue("true") boolean explain,
+                                      @DefaultValue("10m") Duration explainInterval,
+                                      @DefaultValue("10s") Duration explainTimeout) {
+}
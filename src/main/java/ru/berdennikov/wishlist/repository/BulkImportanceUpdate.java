@@ -0,0 +1,16 @@
+package ru.berdennikov.wishlist.repository;
+
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.util.List;
+
+/**
+ * Массовое изменение важности подарков в базе данных, реализация - {@link BulkImportanceUpdateImpl}
+ */
+public interface BulkImportanceUpdate {
+
+    /**
+     * @see GiftRepository#bulkUpdateImportance(List, Importance, List)
+     */
+    int bulkUpdateImportance(List<Long> ids, Importance importance, List<String> sortKeys);
+}
@@ -0,0 +1,114 @@
+package ru.berdennikov.wishlist.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Меняет важность подарков одним запросом: на PostgreSQL идентификаторы и новые ключи порядка передаются
+ * массивами и соединяются с таблицей через {@code unnest}, поэтому база данных выполняет одно изменение
+ * по множеству строк. На других базах данных (H2 в тестах) запросы по каждому подарку отправляются пакетом JDBC.
+ * Ключ порядка заменяется только у подарков, важность которых действительно меняется.
+ * <p>
+ * Запрос проходит мимо контекста персистентности, поэтому контекст сбрасывается до запроса и очищается после,
+ * как у {@code @Modifying(flushAutomatically = true, clearAutomatically = true)}
+ */
+public class BulkImportanceUpdateImpl implements BulkImportanceUpdate {
+
+    private static final String UPDATE_IMPORTANCE_POSTGRES = """
+            UPDATE gift g
+            SET sort_key = CASE WHEN g.importance = ? THEN g.sort_key ELSE v.sort_key END, importance = ?
+            FROM unnest(?::bigint[], ?::text[]) AS v(id, sort_key)
+            WHERE g.id = v.id AND g.deleted_at IS NULL""";
+
+    private static final String UPDATE_IMPORTANCE = """
+            UPDATE gift
+            SET sort_key = CASE WHEN importance = ? THEN sort_key ELSE ? END, importance = ?
+            WHERE id = ? AND deleted_at IS NULL""";
+
+    private static final String COUNT_UPDATED = """
+            SELECT COUNT(*)
+            FROM gift
+            WHERE id IN (:ids) AND importance = :importance AND deleted_at IS NULL""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private volatile Boolean postgres;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public BulkImportanceUpdateImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    @Transactional
+    public int bulkUpdateImportance(List<Long> ids, Importance importance, List<String> sortKeys) {
+        Assert.isTrue(ids.size() == sortKeys.size(), "Ids and sort keys must have the same size");
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        entityManager.flush();
+        int updated = update(ids, importance, sortKeys);
+        entityManager.clear();
+        return updated;
+    }
+
+    /**
+     * Выполняет изменение без контекста персистентности
+     *
+     * @return количество измененных неудаленных подарков
+     */
+    int update(List<Long> ids, Importance importance, List<String> sortKeys) {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+        }
+        return Boolean.TRUE.equals(postgres)
+                ? updateWithArrays(ids, importance, sortKeys)
+                : updateWithBatch(ids, importance, sortKeys);
+    }
+
+    private int updateWithArrays(List<Long> ids, Importance importance, List<String> sortKeys) {
+        return jdbcTemplate.update(UPDATE_IMPORTANCE_POSTGRES, statement -> {
+            Array idArray = statement.getConnection().createArrayOf("bigint", ids.toArray());
+            Array sortKeyArray = statement.getConnection().createArrayOf("text", sortKeys.toArray());
+            statement.setString(1, importance.name());
+            statement.setString(2, importance.name());
+            statement.setArray(3, idArray);
+            statement.setArray(4, sortKeyArray);
+        });
+    }
+
+    private int updateWithBatch(List<Long> ids, Importance importance, List<String> sortKeys) {
+        List<Object[]> batch = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            batch.add(new Object[]{importance.name(), sortKeys.get(i), importance.name(), ids.get(i)});
+        }
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(UPDATE_IMPORTANCE, batch)) {
+            if (count < 0) {
+                // драйвер не сообщил количество строк запроса пакета: после изменения у всех найденных
+                // неудаленных подарков эта важность, поэтому они пересчитываются
+                return namedJdbcTemplate.queryForObject(COUNT_UPDATED,
+                        Map.of("ids", ids, "importance", importance.name()), Integer.class);
+            }
+            updated += count;
+        }
+        return updated;
+    }
+}
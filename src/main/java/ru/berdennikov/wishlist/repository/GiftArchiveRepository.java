@@ -0,0 +1,94 @@
+package ru.berdennikov.wishlist.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Архив удаленных подарков в таблице gift_archive.
+ * <p>
+ * Удаленные подарки остаются в таблице gift с заполненным deleted_at и переносятся в архив пачками,
+ * чтобы таблица действующих подарков не разрасталась мертвыми строками
+ */
+@Repository
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftArchiveRepository {
+
+    private static final String SELECT_DELETED = """
+            SELECT id FROM gift
+            WHERE deleted_at IS NOT NULL AND deleted_at < ?
+            ORDER BY deleted_at
+            LIMIT ?
+            FOR UPDATE""";
+
+    private static final String ARCHIVE = """
+            INSERT INTO gift_archive (id, title, description, importance, sort_key, deleted_at, archived_at)
+            SELECT id, title, description, importance, sort_key, deleted_at, :archivedAt
+            FROM gift
+            WHERE id IN (:ids)""";
+
+    private static final String DELETE_ARCHIVED = "DELETE FROM gift WHERE id IN (:ids)";
+
+    private static final String UNDELETE = "UPDATE gift SET deleted_at = NULL WHERE id = ? AND deleted_at IS NOT NULL";
+
+    private static final String RESTORE = """
+            INSERT INTO gift (id, title, description, importance, sort_key)
+            SELECT id, title, description, importance, sort_key
+            FROM gift_archive
+            WHERE id = ?""";
+
+    private static final String DELETE_RESTORED = "DELETE FROM gift_archive WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    public GiftArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Переносит в архив одну пачку подарков, удаленных раньше указанного времени.
+     * Строки пачки блокируются до конца транзакции, поэтому параллельное восстановление дождется переноса
+     *
+     * @param deletedBefore переносятся подарки, удаленные раньше этого времени
+     * @param limit         размер пачки
+     * @return количество перенесенных подарков
+     */
+    @Transactional
+    public int archiveDeleted(Instant deletedBefore, int limit) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_DELETED, Long.class, Timestamp.from(deletedBefore), limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        namedJdbcTemplate.update(ARCHIVE, Map.of("ids", ids, "archivedAt", Timestamp.from(Instant.now())));
+        return namedJdbcTemplate.update(DELETE_ARCHIVED, Map.of("ids", ids));
+    }
+
+    /**
+     * Восстанавливает удаленный подарок: снимает отметку об удалении или возвращает подарок из архива
+     *
+     * @param id идентификатор подарка
+     * @return {@code true}, если подарок был удален и восстановлен
+     */
+    @Transactional
+    public boolean restore(long id) {
+        if (jdbcTemplate.update(UNDELETE, id) > 0) {
+            return true;
+        }
+        if (jdbcTemplate.update(RESTORE, id) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DELETE_RESTORED, id);
+        return true;
+    }
+}
@@ -0,0 +1,178 @@
+package ru.berdennikov.wishlist.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftChange;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * История изменений подарков в таблице gift_history (только PostgreSQL).
+ * <p>
+ * Записи добавляет триггер на таблице gift в той же транзакции, что и изменение, приложение их только читает.
+ * Таблица секционирована по месяцам времени изменения, секции создает и удаляет
+ * {@link ru.berdennikov.wishlist.service.history.GiftHistoryPartitionMaintainer}
+ */
+@Repository
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftHistoryRepository {
+
+    private static final String SELECT_BY_GIFT = """
+            SELECT change_id, gift_id, changed_at, operation, title, description, importance
+            FROM gift_history
+            WHERE gift_id = ?
+            ORDER BY changed_at DESC, change_id DESC
+            LIMIT ?""";
+
+    /**
+     * Для каждого подарка берется последняя запись не позже указанного времени. Запрос читает только историю:
+     * секции после этого времени отсекаются по changed_at, а более старые удаляются вместе с retention,
+     * поэтому объем чтения не зависит от количества когда-либо созданных подарков
+     */
+    private static final String SELECT_AS_OF = """
+            SELECT gift_id, title, description, importance, sort_key
+            FROM (SELECT DISTINCT ON (gift_id) gift_id, operation, title, description, importance, sort_key
+                  FROM gift_history
+                  WHERE changed_at <= ?
+                  ORDER BY gift_id, changed_at DESC, change_id DESC) h
+            WHERE operation <> 'D'""";
+
+    private static final String SELECT_AS_OF_BY_IMPORTANCE = SELECT_AS_OF + " AND importance = ?";
+
+    /**
+     * Состояние каждого неудаленного подарка на начало сохраняемой истории: последняя запись до этого момента
+     * копируется с временем начала, чтобы подарок не пропал из списков на момент времени после удаления секций
+     */
+    private static final String INSERT_BASELINE = """
+            INSERT INTO gift_history (gift_id, changed_at, operation, title, description, importance, sort_key)
+            SELECT gift_id, ?, 'B', title, description, importance, sort_key
+            FROM (SELECT DISTINCT ON (gift_id) gift_id, operation, title, description, importance, sort_key
+                  FROM gift_history
+                  WHERE changed_at < ?
+                  ORDER BY gift_id, changed_at DESC, change_id DESC) h
+            WHERE operation <> 'D'""";
+
+    private static final String CREATE_PARTITION = "SELECT gift_history_create_partition(?)";
+
+    private static final String SELECT_PARTITIONS = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'gift_history'""";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("gift_history_\\d{4}_\\d{2}");
+
+    private static final RowMapper<GiftChange> CHANGE_ROW_MAPPER = (resultSet, rowNum) -> new GiftChange(
+            resultSet.getLong("change_id"),
+            resultSet.getLong("gift_id"),
+            resultSet.getTimestamp("changed_at").toInstant(),
+            GiftChange.Operation.of(resultSet.getString("operation")),
+            resultSet.getString("title"),
+            resultSet.getString("description"),
+            Importance.valueOf(resultSet.getString("importance")));
+
+    private static final RowMapper<Gift> GIFT_ROW_MAPPER = (resultSet, rowNum) -> {
+        Gift gift = new Gift(resultSet.getLong("gift_id"), resultSet.getString("title"),
+                resultSet.getString("description"), Importance.valueOf(resultSet.getString("importance")));
+        gift.setSortKey(resultSet.getString("sort_key"));
+        return gift;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public GiftHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return последние изменения подарка, начиная с самого нового
+     */
+    public List<GiftChange> findByGiftId(long giftId, int limit) {
+        return jdbcTemplate.query(SELECT_BY_GIFT, CHANGE_ROW_MAPPER, giftId, limit);
+    }
+
+    /**
+     * Восстанавливает состояние подарков на указанный момент
+     *
+     * @param asOf       момент времени
+     * @param importance важность или {@code null} для всех подарков
+     * @return подарки, существовавшие в этот момент, без учета порядка
+     */
+    public List<Gift> findAsOf(Instant asOf, Importance importance) {
+        Timestamp timestamp = Timestamp.from(asOf);
+        return importance != null
+                ? jdbcTemplate.query(SELECT_AS_OF_BY_IMPORTANCE, GIFT_ROW_MAPPER, timestamp, importance.name())
+                : jdbcTemplate.query(SELECT_AS_OF, GIFT_ROW_MAPPER, timestamp);
+    }
+
+    /**
+     * Создает секцию истории за месяц, если ее еще нет
+     */
+    public void createPartition(YearMonth month) {
+        jdbcTemplate.query(CREATE_PARTITION, (ResultSetExtractor<Void>) resultSet -> null, month.atDay(1));
+    }
+
+    /**
+     * @return месяцы, за которые есть секции истории
+     */
+    public List<YearMonth> findPartitions() {
+        return jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class).stream()
+                .filter(name -> PARTITION_NAME.matcher(name).matches())
+                .map(name -> YearMonth.of(Integer.parseInt(name.substring(13, 17)), Integer.parseInt(name.substring(18))))
+                .toList();
+    }
+
+    /**
+     * Удаляет секции истории за месяцы раньше указанного. Перед удалением состояние неудаленных подарков
+     * записывается в начало указанного месяца (операция {@link GiftChange.Operation#BASELINE}), поэтому списки
+     * на момент времени с начала месяца остаются полными
+     *
+     * @param month первый сохраняемый месяц
+     * @return удаленные месяцы
+     */
+    @Transactional
+    public List<YearMonth> dropPartitionsBefore(YearMonth month) {
+        List<YearMonth> dropped = findPartitions().stream()
+                .filter(partition -> partition.isBefore(month))
+                .toList();
+        if (dropped.isEmpty()) {
+            return dropped;
+        }
+        Timestamp start = Timestamp.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        jdbcTemplate.update(INSERT_BASELINE, start, start);
+        dropped.forEach(this::dropPartition);
+        return dropped;
+    }
+
+    /**
+     * Удаляет секцию истории за месяц вместе со всеми записями, без построчного удаления
+     */
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(month));
+    }
+
+    public boolean isSupported() {
+        Boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName()));
+        return Boolean.TRUE.equals(postgres);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("gift_history_%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+}
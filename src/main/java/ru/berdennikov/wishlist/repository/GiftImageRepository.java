@@ -0,0 +1,103 @@
+package ru.berdennikov.wishlist.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import ru.berdennikov.wishlist.model.GiftImage;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Метаданные изображений подарков в таблице gift_image
+ */
+@Repository
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftImageRepository {
+
+    private static final String COLUMNS = "id, gift_id, content_hash, content_type, size_bytes, created_at";
+
+    private static final String INSERT = """
+            INSERT INTO gift_image (gift_id, content_hash, content_type, size_bytes, created_at)
+            VALUES (?, ?, ?, ?, ?)""";
+
+    private static final String SELECT_BY_GIFT = "SELECT " + COLUMNS + " FROM gift_image WHERE gift_id = ? ORDER BY id";
+
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM gift_image WHERE id = ? AND gift_id = ?";
+
+    private static final String SELECT_BY_HASH = "SELECT " + COLUMNS + " FROM gift_image WHERE gift_id = ? AND content_hash = ?";
+
+    private static final String SELECT_CONTENT_TYPE = "SELECT content_type FROM gift_image WHERE content_hash = ? LIMIT 1";
+
+    private static final String COUNT_BY_HASH = "SELECT count(*) FROM gift_image WHERE content_hash = ?";
+
+    private static final String DELETE = "DELETE FROM gift_image WHERE id = ?";
+
+    private static final RowMapper<GiftImage> ROW_MAPPER = (resultSet, rowNum) -> new GiftImage(
+            resultSet.getLong("id"),
+            resultSet.getLong("gift_id"),
+            resultSet.getString("content_hash"),
+            resultSet.getString("content_type"),
+            resultSet.getLong("size_bytes"),
+            resultSet.getTimestamp("created_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public GiftImageRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public GiftImage insert(long giftId, String hash, String contentType, long size) {
+        Instant createdAt = Instant.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"});
+            statement.setLong(1, giftId);
+            statement.setString(2, hash);
+            statement.setString(3, contentType);
+            statement.setLong(4, size);
+            statement.setTimestamp(5, Timestamp.from(createdAt));
+            return statement;
+        }, keyHolder);
+        return new GiftImage(keyHolder.getKey().longValue(), giftId, hash, contentType, size, createdAt);
+    }
+
+    public List<GiftImage> findByGiftId(long giftId) {
+        return jdbcTemplate.query(SELECT_BY_GIFT, ROW_MAPPER, giftId);
+    }
+
+    public Optional<GiftImage> findById(long giftId, long id) {
+        return jdbcTemplate.query(SELECT_BY_ID, ROW_MAPPER, id, giftId).stream().findFirst();
+    }
+
+    public Optional<GiftImage> findByHash(long giftId, String hash) {
+        return jdbcTemplate.query(SELECT_BY_HASH, ROW_MAPPER, giftId, hash).stream().findFirst();
+    }
+
+    /**
+     * @return тип содержимого изображения с таким хешем, если оно прикреплено хотя бы к одному подарку
+     */
+    public Optional<String> findContentType(String hash) {
+        return jdbcTemplate.queryForList(SELECT_CONTENT_TYPE, String.class, hash).stream().findFirst();
+    }
+
+    /**
+     * @return количество прикреплений изображения с таким хешем
+     */
+    public int countByHash(String hash) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_BY_HASH, Integer.class, hash);
+        return count != null ? count : 0;
+    }
+
+    public boolean delete(long id) {
+        return jdbcTemplate.update(DELETE, id) > 0;
+    }
+}
@@ -1,16 +1,101 @@
 package ru.berdennikov.wishlist.repository;
 
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
 import ru.berdennikov.wishlist.model.Gift;
 import ru.berdennikov.wishlist.model.Importance;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Репозиторий для работы с подарками.
+ * <p>
+ * Реализация выбирается настройкой {@code wishlist.storage.engine}:
+ * {@code jpa} - {@link JpaGiftRepository} поверх базы данных (по умолчанию),
+ * {@code memory} - встроенное хранилище в памяти {@link ru.berdennikov.wishlist.repository.memory.InMemoryGiftRepository}
+ * <p>
+ * Подарки одной важности упорядочены по ключу порядка {@link Gift#getSortKey()}, при равных ключах - по идентификатору.
+ * В {@link JpaGiftRepository} удаление мягкое: удаленные подарки не видны ни одному методу репозитория
  */
-@Repository
-public interface GiftRepository extends JpaRepository<Gift, Long> {
+public interface GiftRepository {
+
+    List<Gift> findAll();
+
+    Optional<Gift> findById(Long id);
+
+    /**
+     * Возвращает подарки указанной важности в пользовательском порядке
+     */
     List<Gift> findByImportance(Importance importance);
+
+    /**
+     * Страница подарков указанной важности в пользовательском порядке
+     *
+     * @param importance   важность
+     * @param afterSortKey ключ порядка подарка, после которого начинается страница, {@code null} - с начала
+     * @param afterId      идентификатор подарка, после которого начинается страница
+     * @param limit        максимальное количество подарков
+     */
+    List<Gift> findPageByImportance(Importance importance, String afterSortKey, Long afterId, int limit);
+
+    /**
+     * Первый подарок указанной важности в пользовательском порядке
+     */
+    Optional<Gift> findFirstByImportanceOrderBySortKeyAscIdAsc(Importance importance);
+
+    /**
+     * Последний подарок указанной важности в пользовательском порядке
+     */
+    Optional<Gift> findFirstByImportanceOrderBySortKeyDescIdDesc(Importance importance);
+
+    /**
+     * Первый подарок указанной важности с ключом порядка больше заданного
+     */
+    Optional<Gift> findFirstByImportanceAndSortKeyGreaterThanOrderBySortKeyAscIdAsc(Importance importance, String sortKey);
+
+    /**
+     * Максимальная длина ключа порядка среди подарков указанной важности
+     *
+     * @return длина или {@code null}, если подарков нет
+     */
+    Integer findMaxSortKeyLength(Importance importance);
+
+    <S extends Gift> S save(S gift);
+
+    boolean existsById(Long id);
+
+    void deleteById(Long id);
+
+    long countByImportance(Importance importance);
+
+    long countByIdIn(Collection<Long> ids);
+
+    /**
+     * Удаляет все подарки указанной важности одной операцией
+     *
+     * @return количество удаленных подарков
+     */
+    int bulkDeleteByImportance(Importance importance);
+
+    /**
+     * Меняет важность подарков с указанными идентификаторами одной операцией. Подарок, важность которого
+     * меняется, получает новый ключ порядка, как при обычном изменении важности; подарки, у которых
+     * важность уже такая, сохраняют свое место
+     *
+     * @param ids        идентификаторы подарков без повторов
+     * @param importance новая важность
+     * @param sortKeys   новые ключи порядка в том же порядке, что и идентификаторы
+     * @return количество измененных подарков
+     */
+    int bulkUpdateImportance(List<Long> ids, Importance importance, List<String> sortKeys);
+
+    /**
+     * Заменяет ключи порядка подарков одной транзакцией. Ключ подарка заменяется, только если он
+     * не изменился с момента чтения, поэтому параллельные перемещения не теряются
+     *
+     * @param gifts    подарки с прочитанными ключами порядка
+     * @param sortKeys новые ключи в том же порядке
+     * @return количество измененных подарков
+     */
+    int rebalanceSortKeys(List<Gift> gifts, List<String> sortKeys);
 }
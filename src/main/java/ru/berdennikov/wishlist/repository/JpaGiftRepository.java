@@ -0,0 +1,95 @@
+package ru.berdennikov.wishlist.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Репозиторий подарков в базе данных через Spring Data JPA.
+ * <p>
+ * Массовые операции выполняются одним SQL запросом или одним пакетом запросов ({@link BulkImportanceUpdate})
+ * в одной транзакции, без загрузки подарков в память.
+ * Упорядоченные выборки по важности используют индекс {@code (importance, sort_key, id)}.
+ * <p>
+ * Удаление мягкое (см. {@link Gift}): выборки видят только неудаленные подарки,
+ * массовые запросы явно пропускают удаленные
+ */
+@Repository
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public interface JpaGiftRepository extends JpaRepository<Gift, Long>, GiftRepository, BulkImportanceUpdate {
+
+    @Override
+    @Query("select g from Gift g where g.importance = :importance order by g.sortKey, g.id")
+    List<Gift> findByImportance(@Param("importance") Importance importance);
+
+    @Override
+    default List<Gift> findPageByImportance(Importance importance, String afterSortKey, Long afterId, int limit) {
+        return afterSortKey == null
+                ? findByImportanceOrderBySortKeyAscIdAsc(importance, Limit.of(limit))
+                : findByImportanceAfter(importance, afterSortKey, afterId, Limit.of(limit));
+    }
+
+    List<Gift> findByImportanceOrderBySortKeyAscIdAsc(Importance importance, Limit limit);
+
+    /**
+     * Подарки указанной важности после подарка с ключом {@code sortKey} и идентификатором {@code id}.
+     * Условие {@code sortKey >= :sortKey} задает начало чтения индекса, подарки с тем же ключом
+     * отсекаются по идентификатору
+     */
+    @Query("""
+            select g from Gift g
+            where g.importance = :importance and g.sortKey >= :sortKey and (g.sortKey > :sortKey or g.id > :id)
+            order by g.sortKey, g.id""")
+    List<Gift> findByImportanceAfter(@Param("importance") Importance importance, @Param("sortKey") String sortKey,
+                                     @Param("id") Long id, Limit limit);
+
+    @Override
+    @Query("select max(length(g.sortKey)) from Gift g where g.importance = :importance")
+    Integer findMaxSortKeyLength(@Param("importance") Importance importance);
+
+    @Override
+    default int bulkDeleteByImportance(Importance importance) {
+        return markDeletedByImportance(importance, Instant.now());
+    }
+
+    /**
+     * Помечает удаленными все подарки указанной важности
+     *
+     * @return количество удаленных подарков
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Gift g set g.deletedAt = :deletedAt where g.importance = :importance and g.deletedAt is null")
+    int markDeletedByImportance(@Param("importance") Importance importance, @Param("deletedAt") Instant deletedAt);
+
+    @Override
+    @Transactional
+    default int rebalanceSortKeys(List<Gift> gifts, List<String> sortKeys) {
+        int updated = 0;
+        for (int i = 0; i < gifts.size(); i++) {
+            Gift gift = gifts.get(i);
+            updated += updateSortKey(gift.getId(), gift.getSortKey(), sortKeys.get(i));
+        }
+        return updated;
+    }
+
+    /**
+     * Заменяет ключ порядка подарка, если текущий ключ равен ожидаемому
+     *
+     * @return 1, если ключ заменен
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Gift g set g.sortKey = :sortKey where g.id = :id and g.sortKey = :expected and g.deletedAt is null")
+    int updateSortKey(@Param("id") Long id, @Param("expected") String expected, @Param("sortKey") String sortKey);
+}
@@ -0,0 +1,75 @@
+package ru.berdennikov.wishlist.repository.memory;
+
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Двоичное представление подарка в журнале и снимке.
+ * <p>
+ * Формат: {@code id:long, importance:byte (-1 если не задана), title:string, description:string, sortKey:string},
+ * где {@code string} - длина в байтах {@code int} (-1 для null) и байты UTF-8.
+ * Записи без {@code sortKey}, сделанные до появления пользовательского порядка, читаются с пустым ключом
+ */
+final class GiftCodec {
+
+    private static final Importance[] IMPORTANCES = Importance.values();
+
+    private GiftCodec() {
+    }
+
+    static byte[] encode(Gift gift) {
+        byte[] title = bytes(gift.getTitle());
+        byte[] description = bytes(gift.getDescription());
+        byte[] sortKey = bytes(gift.getSortKey());
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 1 + stringSize(title) + stringSize(description)
+                + stringSize(sortKey));
+        buffer.putLong(gift.getId());
+        buffer.put(gift.getImportance() == null ? -1 : (byte) gift.getImportance().ordinal());
+        writeString(buffer, title);
+        writeString(buffer, description);
+        writeString(buffer, sortKey);
+        return buffer.array();
+    }
+
+    static Gift read(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        byte importance = buffer.get();
+        String title = readString(buffer);
+        String description = readString(buffer);
+        Gift gift = new Gift(id, title, description, importance < 0 ? null : IMPORTANCES[importance]);
+        if (buffer.hasRemaining()) {
+            gift.setSortKey(readString(buffer));
+        }
+        return gift;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] value) {
+        return Integer.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,529 @@
+package ru.berdennikov.wishlist.repository.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.Assert;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.repository.GiftRepository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Встроенное хранилище подарков в памяти процесса. Работает без базы данных.
+ * <p>
+ * Подарки разложены по сегментам с собственными блокировками чтения/записи, внутри сегмента -
+ * хеш-таблица с ключами {@code long}. По каждой важности ведутся битовое множество идентификаторов
+ * для подсчета и упорядоченный по (ключ порядка, идентификатор) индекс позиций: списки, первый и последний
+ * подарок и соседи при перемещении читаются из индекса без сортировки. Индексы обновляются после изменения
+ * подарка, поэтому найденный по индексу подарок перепроверяется.
+ * <p>
+ * Каждое изменение сначала дописывается в журнал {@link WriteAheadLog}, затем применяется в памяти.
+ * Изменения одного сегмента выполняются по очереди, но блокировка чтения сегмента берется только на время
+ * изменения таблицы, поэтому чтения не ждут записи журнала на диск, а записи разных сегментов сбрасываются
+ * на диск вместе.
+ * Периодически содержимое сохраняется в снимок {@link SnapshotFile} и журнал очищается.
+ * При запуске загружается снимок и поверх него проигрывается журнал.
+ * <p>
+ * Наружу всегда отдаются копии подарков, поэтому изменения объектов вызывающим кодом
+ * не попадают в хранилище без {@link #save(Gift)}
+ */
+public class InMemoryGiftRepository implements GiftRepository, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryGiftRepository.class);
+
+    static final String SNAPSHOT_FILE = "gifts.snapshot";
+    static final String LOG_FILE = "gifts.wal";
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final Map<Importance, BitSet> importanceIndex = new EnumMap<>(Importance.class);
+    private final Map<Importance, NavigableSet<Position>> orderIndex = new EnumMap<>(Importance.class);
+    /**
+     * Количество подарков каждой длины ключа порядка по важностям, для {@link #findMaxSortKeyLength(Importance)}
+     */
+    private final Map<Importance, ConcurrentNavigableMap<Integer, Integer>> sortKeyLengths =
+            new EnumMap<>(Importance.class);
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    /**
+     * Записи берут блокировку на чтение и выполняются параллельно, снимок - на запись
+     */
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Path snapshotFile;
+    private final WriteAheadLog writeAheadLog;
+
+    /**
+     * @param dataDir  каталог для журнала и снимков
+     * @param segments количество сегментов, степень двойки
+     * @param fsync    сбрасывать ли журнал на диск до применения изменения в памяти
+     */
+    public InMemoryGiftRepository(Path dataDir, int segments, boolean fsync) throws IOException {
+        Assert.isTrue(segments > 0 && Integer.bitCount(segments) == 1, "Segments count must be a power of two");
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment();
+        }
+        this.segmentMask = segments - 1;
+        for (Importance importance : Importance.values()) {
+            importanceIndex.put(importance, new BitSet());
+            orderIndex.put(importance, new ConcurrentSkipListSet<>());
+            sortKeyLengths.put(importance, new ConcurrentSkipListMap<>());
+        }
+
+        Files.createDirectories(dataDir);
+        this.snapshotFile = dataDir.resolve(SNAPSHOT_FILE);
+        this.writeAheadLog = new WriteAheadLog(dataDir.resolve(LOG_FILE), fsync);
+        recover();
+    }
+
+    @Override
+    public List<Gift> findAll() {
+        List<Gift> gifts = new ArrayList<>();
+        for (Segment segment : segments) {
+            Lock lock = segment.lock.readLock();
+            lock.lock();
+            try {
+                segment.gifts.forEachValue(gift -> gifts.add(copy(gift)));
+            } finally {
+                lock.unlock();
+            }
+        }
+        gifts.sort(Comparator.comparing(Gift::getId));
+        return gifts;
+    }
+
+    @Override
+    public Optional<Gift> findById(Long id) {
+        Assert.notNull(id, "Id must not be null");
+        return Optional.ofNullable(read(id)).map(InMemoryGiftRepository::copy);
+    }
+
+    @Override
+    public List<Gift> findByImportance(Importance importance) {
+        return collect(importance, orderIndex.get(importance), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Gift> findPageByImportance(Importance importance, String afterSortKey, Long afterId, int limit) {
+        NavigableSet<Position> positions = orderIndex.get(importance);
+        if (afterSortKey != null) {
+            positions = positions.tailSet(new Position(afterSortKey, afterId), false);
+        }
+        return collect(importance, positions, limit);
+    }
+
+    @Override
+    public Optional<Gift> findFirstByImportanceOrderBySortKeyAscIdAsc(Importance importance) {
+        return collect(importance, orderIndex.get(importance), 1).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Gift> findFirstByImportanceOrderBySortKeyDescIdDesc(Importance importance) {
+        return collect(importance, orderIndex.get(importance).descendingSet(), 1).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Gift> findFirstByImportanceAndSortKeyGreaterThanOrderBySortKeyAscIdAsc(Importance importance,
+                                                                                           String sortKey) {
+        NavigableSet<Position> greater = orderIndex.get(importance)
+                .tailSet(new Position(sortKey, Long.MAX_VALUE), false);
+        return collect(importance, greater, 1).stream().findFirst();
+    }
+
+    @Override
+    public Integer findMaxSortKeyLength(Importance importance) {
+        Map.Entry<Integer, Integer> longest = sortKeyLengths.get(importance).lastEntry();
+        return longest != null ? longest.getKey() : null;
+    }
+
+    @Override
+    public <S extends Gift> S save(S gift) {
+        Assert.notNull(gift, "Gift must not be null");
+        Lock checkpointReadLock = checkpointLock.readLock();
+        checkpointReadLock.lock();
+        try {
+            long id = gift.getId() != null ? gift.getId() : sequence.incrementAndGet();
+            checkId(id);
+            sequence.accumulateAndGet(id, Math::max);
+            Gift stored = copy(gift);
+            stored.setId(id);
+
+            Segment segment = segment(id);
+            segment.writer.lock();
+            try {
+                writeAheadLog.append(WriteAheadLog.PUT, GiftCodec.encode(stored));
+                Gift previous = segment.apply(id, stored);
+                reindex(id, previous, stored);
+            } finally {
+                segment.writer.unlock();
+            }
+            gift.setId(id);
+            return gift;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write gift to the write-ahead log", e);
+        } finally {
+            checkpointReadLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        Assert.notNull(id, "Id must not be null");
+        return read(id) != null;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        Assert.notNull(id, "Id must not be null");
+        mutate(id, gift -> null);
+    }
+
+    @Override
+    public long countByImportance(Importance importance) {
+        Lock indexReadLock = indexLock.readLock();
+        indexReadLock.lock();
+        try {
+            return importanceIndex.get(importance).cardinality();
+        } finally {
+            indexReadLock.unlock();
+        }
+    }
+
+    @Override
+    public long countByIdIn(Collection<Long> ids) {
+        return ids.stream().distinct().filter(this::existsById).count();
+    }
+
+    @Override
+    public int bulkDeleteByImportance(Importance importance) {
+        int deleted = 0;
+        for (Gift gift : findByImportance(importance)) {
+            if (mutate(gift.getId(), current -> current.getImportance() == importance ? null : current)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int bulkUpdateImportance(List<Long> ids, Importance importance, List<String> sortKeys) {
+        Assert.isTrue(ids.size() == sortKeys.size(), "Ids and sort keys must have the same size");
+        int updated = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            String sortKey = sortKeys.get(i);
+            if (mutate(ids.get(i), current -> {
+                Gift changed = copy(current);
+                if (current.getImportance() != importance) {
+                    changed.setImportance(importance);
+                    changed.setSortKey(sortKey);
+                }
+                return changed;
+            })) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Ключи заменяются по одному под блокировкой сегмента подарка, читатели могут увидеть
+     * частично перенумерованную группу
+     */
+    @Override
+    public int rebalanceSortKeys(List<Gift> gifts, List<String> sortKeys) {
+        Assert.isTrue(gifts.size() == sortKeys.size(), "Gifts and sort keys must have the same size");
+        int updated = 0;
+        for (int i = 0; i < gifts.size(); i++) {
+            String expected = gifts.get(i).getSortKey();
+            String sortKey = sortKeys.get(i);
+            if (mutate(gifts.get(i).getId(), current -> {
+                if (!Objects.equals(current.getSortKey(), expected)) {
+                    return current;
+                }
+                Gift changed = copy(current);
+                changed.setSortKey(sortKey);
+                return changed;
+            })) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Сохраняет снимок, если с прошлого снимка были изменения, и очищает журнал
+     */
+    @Scheduled(fixedDelayString = "${wishlist.storage.memory.snapshot-interval:PT5M}",
+            initialDelayString = "${wishlist.storage.memory.snapshot-interval:PT5M}")
+    public void snapshotIfChanged() {
+        try {
+            if (writeAheadLog.size() > 0) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            log.error("Failed to write gift snapshot", e);
+        }
+    }
+
+    /**
+     * Сохраняет снимок и очищает журнал. Записи на время снимка приостанавливаются, чтения - нет
+     */
+    public void snapshot() throws IOException {
+        Lock checkpointWriteLock = checkpointLock.writeLock();
+        checkpointWriteLock.lock();
+        try {
+            long start = System.nanoTime();
+            List<byte[]> entries = new ArrayList<>();
+            for (Segment segment : segments) {
+                segment.gifts.forEachValue(gift -> entries.add(GiftCodec.encode(gift)));
+            }
+            SnapshotFile.write(snapshotFile, sequence.get(), entries);
+            writeAheadLog.reset();
+            log.info("Gift snapshot with {} gifts written in {} ms", entries.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            checkpointWriteLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            snapshotIfChanged();
+        } finally {
+            writeAheadLog.close();
+        }
+    }
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        if (Files.exists(snapshotFile)) {
+            long lastId = SnapshotFile.read(snapshotFile, gift -> apply(gift.getId(), gift));
+            sequence.accumulateAndGet(lastId, Math::max);
+        }
+        long records = writeAheadLog.replay((type, payload) -> {
+            switch (type) {
+                case WriteAheadLog.PUT -> {
+                    Gift gift = GiftCodec.read(payload);
+                    apply(gift.getId(), gift);
+                }
+                case WriteAheadLog.DELETE -> apply(payload.getLong(), null);
+                default -> throw new IllegalStateException("Unknown write-ahead log record type " + type);
+            }
+        });
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.gifts.size();
+        }
+        log.info("Recovered {} gifts ({} log records replayed) in {} ms", size, records, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Применяет изменение при восстановлении, когда параллельного доступа еще нет
+     */
+    private void apply(long id, Gift gift) {
+        Segment segment = segment(id);
+        Gift previous = gift != null ? segment.gifts.put(id, gift) : segment.gifts.remove(id);
+        reindex(id, previous, gift);
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Изменяет существующий подарок: изменения одного сегмента выполняются по очереди, в памяти изменение
+     * применяется после записи в журнал
+     *
+     * @param id     идентификатор подарка
+     * @param change возвращает новое состояние подарка, {@code null} для удаления
+     *               или тот же объект, если изменять ничего не нужно
+     * @return {@code true}, если подарок существовал и был изменен
+     */
+    private boolean mutate(long id, UnaryOperator<Gift> change) {
+        if (id <= 0) {
+            return false;
+        }
+        Lock checkpointReadLock = checkpointLock.readLock();
+        checkpointReadLock.lock();
+        try {
+            Segment segment = segment(id);
+            segment.writer.lock();
+            try {
+                // подарки сегмента меняют только держатели segment.writer, поэтому читать можно без блокировки
+                Gift current = segment.gifts.get(id);
+                if (current == null) {
+                    return false;
+                }
+                Gift changed = change.apply(current);
+                if (changed == current) {
+                    return false;
+                }
+                if (changed == null) {
+                    writeAheadLog.append(WriteAheadLog.DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+                } else {
+                    writeAheadLog.append(WriteAheadLog.PUT, GiftCodec.encode(changed));
+                }
+                segment.apply(id, changed);
+                reindex(id, current, changed);
+                return true;
+            } finally {
+                segment.writer.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write gift change to the write-ahead log", e);
+        } finally {
+            checkpointReadLock.unlock();
+        }
+    }
+
+    private Gift read(long id) {
+        if (id <= 0) {
+            return null;
+        }
+        Segment segment = segment(id);
+        Lock lock = segment.lock.readLock();
+        lock.lock();
+        try {
+            return segment.gifts.get(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Читает подарки по позициям индекса в порядке обхода, пропуская позиции, устаревшие после изменения подарка
+     */
+    private List<Gift> collect(Importance importance, Iterable<Position> positions, int limit) {
+        List<Gift> gifts = new ArrayList<>(Math.min(limit, 16));
+        for (Position position : positions) {
+            if (gifts.size() == limit) {
+                break;
+            }
+            Gift gift = read(position.id());
+            if (gift != null && gift.getImportance() == importance
+                    && Objects.equals(gift.getSortKey(), position.sortKey())) {
+                gifts.add(copy(gift));
+            }
+        }
+        return gifts;
+    }
+
+    private void reindex(long id, Gift previous, Gift current) {
+        Importance before = previous != null ? previous.getImportance() : null;
+        Importance after = current != null ? current.getImportance() : null;
+        if (before != after) {
+            Lock indexWriteLock = indexLock.writeLock();
+            indexWriteLock.lock();
+            try {
+                if (before != null) {
+                    importanceIndex.get(before).clear((int) id);
+                }
+                if (after != null) {
+                    importanceIndex.get(after).set((int) id);
+                }
+            } finally {
+                indexWriteLock.unlock();
+            }
+        }
+
+        String previousKey = previous != null ? previous.getSortKey() : null;
+        String currentKey = current != null ? current.getSortKey() : null;
+        if (before == after && Objects.equals(previousKey, currentKey)) {
+            return;
+        }
+        if (before != null) {
+            orderIndex.get(before).remove(new Position(previousKey, id));
+            sortKeyLengths.get(before)
+                    .computeIfPresent(length(previousKey), (length, count) -> count > 1 ? count - 1 : null);
+        }
+        if (after != null) {
+            orderIndex.get(after).add(new Position(currentKey, id));
+            sortKeyLengths.get(after).merge(length(currentKey), 1, Integer::sum);
+        }
+    }
+
+    private static int length(String sortKey) {
+        return sortKey == null ? 0 : sortKey.length();
+    }
+
+    private Segment segment(long id) {
+        return segments[(int) (id ^ (id >>> 32)) & segmentMask];
+    }
+
+    private static void checkId(long id) {
+        // идентификаторы хранятся в битовых множествах, индекс которых - int
+        if (id <= 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Gift id must be from 1 to " + Integer.MAX_VALUE + ": " + id);
+        }
+    }
+
+    private static Gift copy(Gift gift) {
+        Gift copy = new Gift(gift.getId(), gift.getTitle(), gift.getDescription(), gift.getImportance());
+        copy.setSortKey(gift.getSortKey());
+        return copy;
+    }
+
+    /**
+     * Позиция подарка в индексе порядка: ключ порядка (подарки без ключа - первые), затем идентификатор
+     */
+    private record Position(String sortKey, long id) implements Comparable<Position> {
+
+        private static final Comparator<Position> ORDER = Comparator
+                .comparing(Position::sortKey, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparingLong(Position::id);
+
+        @Override
+        public int compareTo(Position other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static final class Segment {
+        /**
+         * Очередность изменений сегмента, держится и во время записи в журнал
+         */
+        private final ReentrantLock writer = new ReentrantLock();
+        /**
+         * Защищает таблицу от чтения во время изменения, на запись берется только на время изменения таблицы
+         */
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongObjectHashMap<Gift> gifts = new LongObjectHashMap<>(1024);
+
+        /**
+         * @param gift новое состояние подарка, {@code null} для удаления
+         * @return прежнее состояние подарка
+         */
+        Gift apply(long id, Gift gift) {
+            Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                return gift != null ? gifts.put(id, gift) : gifts.remove(id);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.berdennikov.wishlist.repository.memory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Подключает встроенное хранилище подарков при {@code wishlist.storage.engine: memory}.
+ * Для запуска совсем без базы данных используется профиль {@code memory}
+ */
+@Configuration
+@EnableConfigurationProperties(MemoryStorageProperties.class)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "memory")
+public class MemoryStorageConfig {
+
+    @Bean
+    public InMemoryGiftRepository giftRepository(MemoryStorageProperties properties) throws IOException {
+        return new InMemoryGiftRepository(properties.dataDir(), properties.segments(), properties.fsync());
+    }
+}
@@ -0,0 +1,19 @@
+package ru.berdennikov.wishlist.repository.memory;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Настройки встроенного хранилища подарков
+ *
+ * @param dataDir  каталог для журнала и снимков
+ * @param segments количество сегментов с отдельными блокировками, степень двойки
+ * @param fsync    сбрасывать ли журнал на диск до применения изменения в памяти
+ */
+@ConfigurationProperties(prefix = "wishlist.storage.memory")
+public record MemoryStorageProperties(@DefaultValue("data") Path dataDir,
+                                      @DefaultValue("16") int segments,
+                                      @DefaultValue("true") boolean fsync) {
+}
@@ -0,0 +1,92 @@
+package ru.berdennikov.wishlist.repository.memory;
+
+import ru.berdennikov.wishlist.model.Gift;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Снимок содержимого встроенного хранилища.
+ * <p>
+ * Формат: {@code magic:int, version:int, nextId:long, count:int}, затем {@code count} записей
+ * {@code length:int, gift}, где {@code gift} в формате {@link GiftCodec}.
+ * Снимок пишется и читается через отображение файла в память. Новый снимок сначала записывается
+ * во временный файл и затем атомарно заменяет предыдущий, поэтому на диске всегда есть целый снимок
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x57534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Записывает снимок
+     *
+     * @param file    файл снимка
+     * @param nextId  последний выданный идентификатор
+     * @param entries подарки в формате {@link GiftCodec}
+     */
+    static void write(Path file, long nextId, List<byte[]> entries) throws IOException {
+        long size = HEADER_SIZE;
+        for (byte[] entry : entries) {
+            size += Integer.BYTES + entry.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + size + " bytes exceeds the 2 GB limit");
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(nextId);
+            buffer.putInt(entries.size());
+            for (byte[] entry : entries) {
+                buffer.putInt(entry.length);
+                buffer.put(entry);
+            }
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Читает снимок
+     *
+     * @param file     файл снимка
+     * @param consumer получатель подарков из снимка
+     * @return последний выданный идентификатор на момент снимка
+     */
+    static long read(Path file, Consumer<Gift> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a gift snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long nextId = buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                consumer.accept(GiftCodec.read(buffer.slice(buffer.position(), length)));
+                buffer.position(buffer.position() + length);
+            }
+            return nextId;
+        }
+    }
+}
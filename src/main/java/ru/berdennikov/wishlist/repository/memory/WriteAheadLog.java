@@ -0,0 +1,233 @@
+package ru.berdennikov.wishlist.repository.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи встроенного хранилища.
+ * <p>
+ * Записи только дописываются в конец файла. Формат записи:
+ * {@code length:int, crc32:int, type:byte, payload}, где {@code length} - длина {@code type + payload},
+ * а контрольная сумма считается по ним же. При восстановлении недописанная или поврежденная запись
+ * в конце журнала (например, после сбоя питания) отбрасывается.
+ * <p>
+ * Записи пишет один поток журнала: он забирает из очереди все накопившиеся записи, дописывает их одним вызовом
+ * и один раз сбрасывает файл на диск, после чего завершает ожидание всех их авторов (групповая фиксация).
+ * Поэтому одновременные записи разделяют один {@code fsync}
+ */
+final class WriteAheadLog implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_BATCH = 1024;
+    /**
+     * Признак закрытия журнала в очереди записей: записи до него записываются, после него - отклоняются
+     */
+    private static final PendingRecord CLOSE = new PendingRecord(new byte[0], new CompletableFuture<>());
+
+    /**
+     * Обработчик записей журнала при восстановлении
+     */
+    interface RecordHandler {
+        void handle(byte type, ByteBuffer payload);
+    }
+
+    private final Path file;
+    private final boolean fsync;
+    private final FileChannel channel;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private boolean closed;
+
+    WriteAheadLog(Path file, boolean fsync) throws IOException {
+        this.file = file;
+        this.fsync = fsync;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.writer = new Thread(this::writeLoop, "gift-wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Проигрывает все целые записи журнала и обрезает поврежденный хвост
+     *
+     * @param handler обработчик записей
+     * @return количество проигранных записей
+     */
+    synchronized long replay(RecordHandler handler) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        CRC32 crc = new CRC32();
+        long records = 0;
+        int validEnd = 0;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer record = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            handler.handle(record.get(), record);
+            buffer.position(buffer.position() + length);
+            validEnd = buffer.position();
+            records++;
+        }
+        if (validEnd < size) {
+            log.warn("Write-ahead log {} has a corrupted tail, truncating {} bytes", file, size - validEnd);
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        return records;
+    }
+
+    /**
+     * Дописывает запись в конец журнала и ждет, пока она будет записана (и сброшена на диск, если задан fsync).
+     * Записи попадают в журнал в порядке вызовов
+     *
+     * @param type    тип записи
+     * @param payload содержимое записи
+     */
+    void append(byte type, byte[] payload) throws IOException {
+        byte[] record = new byte[HEADER_SIZE + 1 + payload.length];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putInt(1 + payload.length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_SIZE, 1 + payload.length);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+
+        PendingRecord pending = new PendingRecord(record, new CompletableFuture<>());
+        synchronized (queue) {
+            if (closed) {
+                throw new IOException("Write-ahead log " + file + " is closed");
+            }
+            queue.add(pending);
+        }
+        try {
+            // ожидание не прерывается: запись уже в очереди, и вызывающий код должен применить ее в памяти
+            pending.written().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Очищает журнал после того, как его содержимое сохранено в снимке
+     */
+    synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Дожидается записи уже поставленных в очередь записей и закрывает файл
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (!closed) {
+                closed = true;
+                queue.add(CLOSE);
+            }
+        }
+        if (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Поток журнала не прерывается: прерывание во время записи закрыло бы FileChannel
+     */
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            // после признака закрытия записей в очереди нет
+            int end = batch.indexOf(CLOSE);
+            List<PendingRecord> records = end >= 0 ? batch.subList(0, end) : batch;
+            try {
+                write(records);
+                records.forEach(pending -> pending.written().complete(null));
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to write {} records to the write-ahead log {}", records.size(), file, e);
+                records.forEach(pending -> pending.written().completeExceptionally(e));
+            }
+            if (end >= 0) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private synchronized void write(List<PendingRecord> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (PendingRecord pending : batch) {
+            size += pending.record().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (PendingRecord pending : batch) {
+            buffer.put(pending.record());
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    private record PendingRecord(byte[] record, CompletableFuture<Void> written) {
+    }
+}
@@ -0,0 +1,70 @@
+package ru.berdennikov.wishlist.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.repository.GiftRepository;
+import ru.berdennikov.wishlist.service.coalescing.ReadCoalescer;
+
+import java.util.List;
+
+/**
+ * Перенумеровывает ключи порядка подарков, когда они становятся слишком длинными.
+ * <p>
+ * Ключи удлиняются при многократных перемещениях в одно и то же место. Группа подарков одной важности,
+ * в которой есть ключ длиннее {@code wishlist.ordering.max-key-length}, получает равномерно
+ * распределенные короткие ключи с сохранением порядка
+ */
+@Component
+public class GiftOrderRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftOrderRebalancer.class);
+
+    private final GiftRepository repository;
+    private final ReadCoalescer readCoalescer;
+    private final int maxKeyLength;
+
+    @Autowired
+    public GiftOrderRebalancer(GiftRepository repository, ReadCoalescer readCoalescer,
+                               @Value("${wishlist.ordering.max-key-length:24}") int maxKeyLength) {
+        this.repository = repository;
+        this.readCoalescer = readCoalescer;
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    @Scheduled(fixedDelayString = "${wishlist.ordering.rebalance-interval:PT10M}",
+            initialDelayString = "${wishlist.ordering.rebalance-interval:PT10M}")
+    public void rebalanceIfNeeded() {
+        for (Importance importance : Importance.values()) {
+            try {
+                Integer length = repository.findMaxSortKeyLength(importance);
+                if (length != null && length > maxKeyLength) {
+                    rebalance(importance);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to rebalance gift order for importance {}", importance, e);
+            }
+        }
+    }
+
+    /**
+     * Перенумеровывает ключи порядка подарков указанной важности
+     *
+     * @param importance важность подарков
+     * @return количество подарков с новыми ключами
+     */
+    public int rebalance(Importance importance) {
+        long start = System.nanoTime();
+        List<Gift> gifts = repository.findByImportance(importance);
+        int updated = repository.rebalanceSortKeys(gifts, RankKeys.evenlySpaced(gifts.size()));
+        readCoalescer.invalidate();
+        log.info("Rebalanced order of {} of {} gifts with importance {} in {} ms",
+                updated, gifts.size(), importance, (System.nanoTime() - start) / 1_000_000);
+        return updated;
+    }
+}
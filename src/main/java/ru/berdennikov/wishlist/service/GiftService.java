@@ -5,36 +5,75 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
+import ru.berdennikov.wishlist.exception.DuplicateGiftException;
 import ru.berdennikov.wishlist.exception.GiftNotFoundException;
 import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftPosition;
 import ru.berdennikov.wishlist.model.Importance;
 import ru.berdennikov.wishlist.repository.GiftRepository;
+import ru.berdennikov.wishlist.service.coalescing.ReadCoalescer;
+import ru.berdennikov.wishlist.service.similar.SimilarGift;
+import ru.berdennikov.wishlist.service.similar.SimilarGiftFinder;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 
 /**
- * Сервис для работы с подарками
+ * Сервис для работы с подарками.
+ * <p>
+ * Одинаковые одновременные чтения списков объединяются {@link ReadCoalescer}, каждая запись сбрасывает объединение.
+ * Новые подарки проверяются на похожие по названию через {@link SimilarGiftFinder}
  */
 @Service
 public class GiftService {
 
     private static final Logger log = LoggerFactory.getLogger(GiftService.class);
 
+    /**
+     * Порядок списка всех подарков: сначала более важные, внутри важности - пользовательский порядок
+     */
+    public static final Comparator<Gift> LIST_ORDER = Comparator
+            .comparing(Gift::getImportance, Comparator.nullsLast(Comparator.<Importance>reverseOrder()))
+            .thenComparing(Gift::getSortKey, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Gift::getId, Comparator.nullsLast(Comparator.<Long>naturalOrder()));
+
+    /**
+     * Важности в порядке списка всех подарков
+     */
+    private static final List<Importance> IMPORTANCE_ORDER = List.of(Importance.HIGH, Importance.MEDIUM, Importance.LOW);
+
+    /**
+     * Сколько похожих подарков возвращать при обнаружении дубликата
+     */
+    private static final int DUPLICATES_LIMIT = 5;
+
     private final GiftRepository repository;
+    private final ReadCoalescer readCoalescer;
+    private final SimilarGiftFinder similarGiftFinder;
 
     @Autowired
-    public GiftService(GiftRepository repository) {
+    public GiftService(GiftRepository repository, ReadCoalescer readCoalescer, SimilarGiftFinder similarGiftFinder) {
         this.repository = repository;
+        this.readCoalescer = readCoalescer;
+        this.similarGiftFinder = similarGiftFinder;
     }
 
     /**
-     * Возвращает список всех подарков
+     * Возвращает список всех подарков: сначала более важные, внутри важности - в пользовательском порядке
      *
      * @return список подарков
      */
     public List<Gift> getAll() {
         log.info("Get all");
-        return repository.findAll();
+        return readCoalescer.execute("getAll", null, () -> {
+            List<Gift> gifts = new ArrayList<>(repository.findAll());
+            gifts.sort(LIST_ORDER);
+            return gifts;
+        });
     }
 
     /**
@@ -51,30 +90,100 @@ public class GiftService {
     }
 
     /**
-     * Возвращает список подарков, отфильтрованных по важности
+     * Возвращает список подарков, отфильтрованных по важности, в пользовательском порядке
      *
      * @param importance важность подарка
      * @return список подарков по важности
      */
     public List<Gift> getByImportance(Importance importance) {
         log.info("Get with importance {}", importance);
-        return repository.findByImportance(importance);
+        return readCoalescer.execute("getByImportance", importance, () -> repository.findByImportance(importance));
+    }
+
+    /**
+     * Возвращает страницу списка подарков в порядке {@link #LIST_ORDER}, начиная после указанной позиции.
+     * Каждая важность читается с позиции и не дальше конца страницы, поэтому стоимость страницы
+     * не зависит от ее удаленности от начала списка
+     *
+     * @param importance важность подарков или {@code null} для всех подарков
+     * @param after      позиция последнего подарка предыдущей страницы или {@code null} для первой страницы
+     * @param size       размер страницы
+     * @return подарки страницы, меньше {@code size}, если список закончился
+     */
+    public List<Gift> getPage(Importance importance, GiftPosition after, int size) {
+        Assert.isTrue(size > 0, "Page size must be positive");
+        Assert.isTrue(after == null || after.importance() != null && after.sortKey() != null && after.id() != null,
+                "Page position must be complete");
+        log.info("Get page with importance {} after {}", importance, after);
+        return readCoalescer.execute("getPage", new PageRequest(importance, after, size), () -> {
+            List<Gift> page = new ArrayList<>(size);
+            for (Importance current : importance != null ? List.of(importance) : IMPORTANCE_ORDER) {
+                // более важные подарки идут в списке раньше
+                if (after != null && current.compareTo(after.importance()) > 0) {
+                    continue;
+                }
+                boolean continued = after != null && current == after.importance();
+                page.addAll(repository.findPageByImportance(current, continued ? after.sortKey() : null,
+                        continued ? after.id() : null, size - page.size()));
+                if (page.size() == size) {
+                    break;
+                }
+            }
+            return page;
+        });
     }
 
     /**
-     * Сохраняет подарок
+     * Сохраняет подарок, если подарков с похожим названием нет. Новый подарок ставится в конец своей важности
      *
      * @param gift подарок
      * @return сохраненный подарок
+     * @throws DuplicateGiftException если есть подарки с похожим названием
      */
     public Gift save(Gift gift) {
+        return save(gift, false);
+    }
+
+    /**
+     * Сохраняет подарок. Новый подарок ставится в конец своей важности
+     *
+     * @param gift  подарок
+     * @param force сохранить, даже если есть подарки с похожим названием
+     * @return сохраненный подарок
+     * @throws DuplicateGiftException если есть подарки с похожим названием и {@code force} не указан
+     */
+    public Gift save(Gift gift, boolean force) {
         Assert.notNull(gift, "Gift must not be null");
         log.info("Save gift {}", gift);
-        return repository.save(gift);
+        if (!force) {
+            List<SimilarGift> similar = similarGiftFinder.findSimilar(gift.getTitle(), DUPLICATES_LIMIT);
+            if (!similar.isEmpty()) {
+                throw new DuplicateGiftException(gift.getTitle(), similar);
+            }
+        }
+        if (gift.getSortKey() == null) {
+            gift.setSortKey(lastSortKey(gift.getImportance()));
+        }
+        Gift saved = repository.save(gift);
+        readCoalescer.invalidate();
+        similarGiftFinder.added(saved);
+        return saved;
     }
 
     /**
-     * Обновляет подарок
+     * Ищет подарки с названием, похожим на указанное
+     *
+     * @param title название
+     * @param limit максимальное количество подарков
+     * @return похожие подарки, начиная с самых похожих
+     */
+    public List<SimilarGift> findSimilar(String title, int limit) {
+        log.info("Find gifts similar to '{}'", title);
+        return similarGiftFinder.findSimilar(title, limit);
+    }
+
+    /**
+     * Обновляет подарок. При смене важности подарок ставится в конец новой важности
      *
      * @param gift подарок
      * @throws GiftNotFoundException если подарок не найден
@@ -88,15 +197,63 @@ public class GiftService {
             throw new GiftNotFoundException(id);
         }
 
+        if (existing.getImportance() != gift.getImportance() || existing.getSortKey() == null) {
+            existing.setSortKey(lastSortKey(gift.getImportance()));
+        }
         existing.setTitle(gift.getTitle());
         existing.setDescription(gift.getDescription());
         existing.setImportance(gift.getImportance());
         repository.save(existing);
+        readCoalescer.invalidate();
+        similarGiftFinder.added(existing);
+        gift.setSortKey(existing.getSortKey());
         return gift;
     }
 
     /**
-     * Удаляет подарок
+     * Перемещает подарок внутри его важности. Меняется ключ порядка только перемещаемого подарка
+     *
+     * @param id      идентификатор подарка
+     * @param afterId идентификатор подарка той же важности, после которого поставить подарок,
+     *                или {@code null}, чтобы поставить его первым
+     * @return перемещенный подарок
+     * @throws GiftNotFoundException    если подарок не найден
+     * @throws IllegalArgumentException если подарки разной важности или совпадают
+     */
+    public Gift move(Long id, Long afterId) {
+        log.info("Move gift {} after {}", id, afterId);
+        Assert.isTrue(!Objects.equals(id, afterId), "Gift cannot be moved after itself");
+        Gift gift = get(id);
+        Importance importance = gift.getImportance();
+
+        Gift previous = null;
+        Gift next;
+        if (afterId == null) {
+            next = repository.findFirstByImportanceOrderBySortKeyAscIdAsc(importance).orElse(null);
+        } else {
+            previous = get(afterId);
+            Assert.isTrue(previous.getImportance() == importance, "Gifts must have the same importance");
+            next = previous.getSortKey() == null ? null : repository
+                    .findFirstByImportanceAndSortKeyGreaterThanOrderBySortKeyAscIdAsc(importance, previous.getSortKey())
+                    .orElse(null);
+        }
+        if (next != null && next.getId().equals(id)) {
+            // подарок уже стоит на нужном месте
+            return gift;
+        }
+
+        String before = previous != null ? previous.getSortKey() : null;
+        String after = next != null ? next.getSortKey() : null;
+        gift.setSortKey(before == null ? RankKeys.before(after)
+                : after == null ? RankKeys.after(before)
+                : RankKeys.between(before, after));
+        Gift moved = repository.save(gift);
+        readCoalescer.invalidate();
+        return moved;
+    }
+
+    /**
+     * Удаляет подарок. При хранении в базе данных подарок только помечается удаленным и может быть восстановлен
      *
      * @param id идентификатор подарка
      * @throws GiftNotFoundException если подарок не найден
@@ -107,5 +264,62 @@ public class GiftService {
             throw new GiftNotFoundException(id);
         }
         repository.deleteById(id);
+        readCoalescer.invalidate();
+        similarGiftFinder.removed(id);
+    }
+
+    /**
+     * Удаляет все подарки указанной важности одним запросом
+     *
+     * @param importance важность подарков
+     * @param dryRun     только подсчитать подарки, которые будут удалены
+     * @return количество удаленных (при dryRun - подлежащих удалению) подарков
+     */
+    public long deleteByImportance(Importance importance, boolean dryRun) {
+        Assert.notNull(importance, "Importance must not be null");
+        log.info("Bulk delete gifts with importance {}, dry run {}", importance, dryRun);
+        if (dryRun) {
+            return repository.countByImportance(importance);
+        }
+        int deleted = repository.bulkDeleteByImportance(importance);
+        readCoalescer.invalidate();
+        similarGiftFinder.invalidate();
+        return deleted;
+    }
+
+    /**
+     * Меняет важность подарков с указанными идентификаторами одним запросом. Как и при {@link #update(Gift)},
+     * подарки с новой важностью ставятся в конец этой важности, в порядке идентификаторов в запросе
+     *
+     * @param ids        идентификаторы подарков
+     * @param importance новая важность
+     * @param dryRun     только подсчитать подарки, которые будут изменены
+     * @return количество измененных (при dryRun - подлежащих изменению) подарков
+     */
+    public long updateImportance(Collection<Long> ids, Importance importance, boolean dryRun) {
+        Assert.notEmpty(ids, "Ids must not be empty");
+        Assert.notNull(importance, "Importance must not be null");
+        log.info("Bulk update importance to {} for gifts {}, dry run {}", importance, ids, dryRun);
+        if (dryRun) {
+            return repository.countByIdIn(ids);
+        }
+        List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        List<String> sortKeys = RankKeys.after(lastSortKeyOf(importance), distinctIds.size());
+        int updated = repository.bulkUpdateImportance(distinctIds, importance, sortKeys);
+        readCoalescer.invalidate();
+        return updated;
+    }
+
+    private String lastSortKey(Importance importance) {
+        return RankKeys.after(importance == null ? null : lastSortKeyOf(importance));
+    }
+
+    private String lastSortKeyOf(Importance importance) {
+        return repository.findFirstByImportanceOrderBySortKeyDescIdDesc(importance)
+                .map(Gift::getSortKey)
+                .orElse(null);
+    }
+
+    private record PageRequest(Importance importance, GiftPosition after, int size) {
     }
 }
@@ -0,0 +1,222 @@
+package ru.berdennikov.wishlist.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ключи пользовательского порядка подарков.
+ * <p>
+ * Ключ - дробная часть числа в системе счисления по основанию 62, записанная цифрами
+ * {@code 0-9A-Za-z} без завершающих нулей. Такие ключи упорядочены так же, как строки
+ * при побайтовом сравнении, и между любыми двумя ключами всегда есть третий.
+ * Поэтому перемещение подарка меняет только его собственный ключ, соседей перенумеровывать не нужно.
+ * <p>
+ * Ключи в начале и в конце группы строятся {@link #before(String)} и {@link #after(String)} без деления
+ * промежутка пополам, поэтому добавление подарков в конец удлиняет ключи логарифмически.
+ * При многократных вставках между двумя подарками ключи удлиняются линейно, такие группы периодически
+ * перенумеровываются равномерно распределенными ключами {@link #evenlySpaced(int)}
+ */
+public final class RankKeys {
+
+    private static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+    private static final char ZERO = DIGITS.charAt(0);
+    private static final char MAX_DIGIT = DIGITS.charAt(BASE - 1);
+    private static final int MAX_EVENLY_SPACED_LENGTH = 10;
+
+    private RankKeys() {
+    }
+
+    /**
+     * Возвращает ключ строго между двумя ключами
+     *
+     * @param before ключ слева или {@code null}, если слева ничего нет
+     * @param after  ключ справа или {@code null}, если справа ничего нет
+     * @return новый ключ
+     * @throws IllegalArgumentException если ключи некорректны или {@code before >= after}
+     */
+    public static String between(String before, String after) {
+        validate(before);
+        validate(after);
+        if (before != null && after != null && before.compareTo(after) >= 0) {
+            throw new IllegalArgumentException("Key " + before + " must be less than " + after);
+        }
+        return midpoint(before == null ? "" : before, after);
+    }
+
+    /**
+     * Возвращает ключ после последнего ключа группы: ключ увеличивается на единицу младшего разряда.
+     * Длина ключа - удвоенное количество ведущих цифр {@code z} плюс два: чем меньше места осталось до конца
+     * диапазона, тем мельче шаг, и n добавлений подряд дают ключи длиной O(log n)
+     *
+     * @param last последний ключ или {@code null}, если группа пуста
+     * @return новый ключ больше {@code last}
+     * @throws IllegalArgumentException если ключ некорректен
+     */
+    public static String after(String last) {
+        validate(last);
+        if (last == null) {
+            return between(null, null);
+        }
+        int length = 2 * leading(last, MAX_DIGIT) + 2;
+        char[] digits = digits(last, length);
+        // ведущие z короче length, поэтому перенос останавливается внутри ключа
+        int position = length - 1;
+        while (digits[position] == MAX_DIGIT) {
+            digits[position--] = ZERO;
+        }
+        digits[position] = DIGITS.charAt(DIGITS.indexOf(digits[position]) + 1);
+        return trim(digits);
+    }
+
+    /**
+     * Возвращает возрастающие ключи для нескольких подарков, добавляемых в конец группы подряд
+     *
+     * @param last  последний ключ или {@code null}, если группа пуста
+     * @param count количество ключей
+     * @return ключи больше {@code last} в порядке возрастания
+     * @throws IllegalArgumentException если ключ некорректен
+     */
+    public static List<String> after(String last, int count) {
+        List<String> keys = new ArrayList<>(count);
+        String key = last;
+        for (int i = 0; i < count; i++) {
+            key = after(key);
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * Возвращает ключ перед первым ключом группы: ключ уменьшается на единицу младшего разряда.
+     * Длина ключа - удвоенное количество ведущих нулей плюс два, как в {@link #after(String)}
+     *
+     * @param first первый ключ или {@code null}, если группа пуста
+     * @return новый ключ меньше {@code first}
+     * @throws IllegalArgumentException если ключ некорректен
+     */
+    public static String before(String first) {
+        validate(first);
+        if (first == null) {
+            return between(null, null);
+        }
+        int length = 2 * leading(first, ZERO) + 2;
+        char[] digits = digits(first, length);
+        if (first.length() > length) {
+            // отброшенные разряды ненулевые, усеченный ключ уже меньше
+            return trim(digits);
+        }
+        // первая ненулевая цифра левее младшего разряда, поэтому заем останавливается внутри ключа
+        int position = length - 1;
+        while (digits[position] == ZERO) {
+            digits[position--] = MAX_DIGIT;
+        }
+        digits[position] = DIGITS.charAt(DIGITS.indexOf(digits[position]) - 1);
+        return trim(digits);
+    }
+
+    /**
+     * Возвращает возрастающие ключи одинаковой длины, равномерно распределенные по всему диапазону
+     *
+     * @param count количество ключей
+     * @return ключи в порядке возрастания
+     */
+    public static List<String> evenlySpaced(int count) {
+        int length = 1;
+        long range = BASE;
+        // между соседними ключами остается не меньше BASE свободных значений
+        while (range / (count + 1L) < BASE) {
+            if (++length > MAX_EVENLY_SPACED_LENGTH) {
+                throw new IllegalArgumentException("Too many keys: " + count);
+            }
+            range *= BASE;
+        }
+        long step = range / (count + 1L);
+
+        List<String> keys = new ArrayList<>(count);
+        char[] digits = new char[length];
+        for (int i = 1; i <= count; i++) {
+            long value = step * i;
+            for (int position = length - 1; position >= 0; position--) {
+                digits[position] = DIGITS.charAt((int) (value % BASE));
+                value /= BASE;
+            }
+            int end = length;
+            while (digits[end - 1] == ZERO) {
+                end--;
+            }
+            keys.add(new String(digits, 0, end));
+        }
+        return keys;
+    }
+
+    /**
+     * Середина между {@code a} и {@code b}, где пустая строка означает 0, а {@code null} - 1
+     */
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            int common = 0;
+            while (common < b.length() && digitChar(a, common) == b.charAt(common)) {
+                common++;
+            }
+            if (common > 0) {
+                return b.substring(0, common)
+                        + midpoint(common < a.length() ? a.substring(common) : "", b.substring(common));
+            }
+        }
+        int digitA = a.isEmpty() ? 0 : DIGITS.indexOf(a.charAt(0));
+        int digitB = b != null ? DIGITS.indexOf(b.charAt(0)) : BASE;
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB + 1) / 2));
+        }
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+
+    private static int leading(String key, char digit) {
+        int count = 0;
+        while (count < key.length() && key.charAt(count) == digit) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Первые {@code length} цифр ключа, недостающие дополняются нулями
+     */
+    private static char[] digits(String key, int length) {
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = digitChar(key, i);
+        }
+        return digits;
+    }
+
+    private static String trim(char[] digits) {
+        int end = digits.length;
+        while (digits[end - 1] == ZERO) {
+            end--;
+        }
+        return new String(digits, 0, end);
+    }
+
+    private static char digitChar(String key, int position) {
+        return position < key.length() ? key.charAt(position) : ZERO;
+    }
+
+    private static void validate(String key) {
+        if (key == null) {
+            return;
+        }
+        if (key.isEmpty() || key.charAt(key.length() - 1) == ZERO) {
+            throw new IllegalArgumentException("Invalid key: '" + key + "'");
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (DIGITS.indexOf(key.charAt(i)) < 0) {
+                throw new IllegalArgumentException("Invalid key: '" + key + "'");
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.berdennikov.wishlist.service.archive;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки переноса удаленных подарков в архив
+ *
+ * @param enabled          включен ли перенос по расписанию
+ * @param retention        сколько удаленный подарок остается в таблице gift до переноса
+ * @param batchSize        количество подарков в одной транзакции переноса
+ * @param batchDelay       пауза между пачками, ограничивает нагрузку на базу данных
+ * @param maxBatchesPerRun максимальное количество пачек за один запуск
+ */
+@ConfigurationProperties(prefix = "wishlist.compaction")
+public record CompactionProperties(@DefaultValue("true") boolean enabled,
+                                   @DefaultValue("1h") Duration retention,
+                                   @DefaultValue("500") int batchSize,
+                                   @DefaultValue("200ms") Duration batchDelay,
+                                   @DefaultValue("100") int maxBatchesPerRun) {
+}
@@ -0,0 +1,110 @@
+package ru.berdennikov.wishlist.service.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.berdennikov.wishlist.exception.GiftNotFoundException;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.repository.GiftArchiveRepository;
+import ru.berdennikov.wishlist.service.GiftService;
+import ru.berdennikov.wishlist.service.coalescing.ReadCoalescer;
+import ru.berdennikov.wishlist.service.similar.SimilarGiftFinder;
+
+import java.time.Instant;
+
+/**
+ * Архив удаленных подарков: фоновый перенос и восстановление.
+ * <p>
+ * Перенос выполняется небольшими пачками с паузой между ними, чтобы не создавать всплесков нагрузки
+ * на базу данных. Доступен только при хранении подарков в базе данных
+ */
+@Service
+@EnableConfigurationProperties(CompactionProperties.class)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftArchiveService.class);
+
+    private final GiftArchiveRepository archiveRepository;
+    private final GiftService giftService;
+    private final ReadCoalescer readCoalescer;
+    private final SimilarGiftFinder similarGiftFinder;
+    private final CompactionProperties properties;
+
+    @Autowired
+    public GiftArchiveService(GiftArchiveRepository archiveRepository, GiftService giftService,
+                              ReadCoalescer readCoalescer, SimilarGiftFinder similarGiftFinder,
+                              CompactionProperties properties) {
+        this.archiveRepository = archiveRepository;
+        this.giftService = giftService;
+        this.readCoalescer = readCoalescer;
+        this.similarGiftFinder = similarGiftFinder;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${wishlist.compaction.interval:PT10M}",
+            initialDelayString = "${wishlist.compaction.interval:PT10M}")
+    public void compactIfEnabled() {
+        if (properties.enabled()) {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                log.error("Failed to move deleted gifts to the archive", e);
+            }
+        }
+    }
+
+    /**
+     * Переносит в архив подарки, удаленные раньше {@code wishlist.compaction.retention}
+     *
+     * @return количество перенесенных подарков
+     */
+    public int compact() {
+        long start = System.nanoTime();
+        Instant deletedBefore = Instant.now().minus(properties.retention());
+        int total = 0;
+        for (int batch = 0; batch < properties.maxBatchesPerRun(); batch++) {
+            int archived = archiveRepository.archiveDeleted(deletedBefore, properties.batchSize());
+            total += archived;
+            if (archived < properties.batchSize() || !pause()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Moved {} deleted gifts to the archive in {} ms", total, (System.nanoTime() - start) / 1_000_000);
+        }
+        return total;
+    }
+
+    /**
+     * Восстанавливает удаленный подарок, в том числе уже перенесенный в архив
+     *
+     * @param id идентификатор подарка
+     * @return восстановленный подарок
+     * @throws GiftNotFoundException если удаленного подарка с таким идентификатором нет
+     */
+    public Gift restore(long id) {
+        log.info("Restore gift {}", id);
+        if (!archiveRepository.restore(id)) {
+            throw new GiftNotFoundException(id);
+        }
+        readCoalescer.invalidate();
+        Gift restored = giftService.get(id);
+        similarGiftFinder.added(restored);
+        return restored;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.batchDelay().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
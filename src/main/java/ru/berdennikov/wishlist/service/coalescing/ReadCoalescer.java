@@ -0,0 +1,167 @@
+package ru.berdennikov.wishlist.service.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединяет одинаковые одновременные чтения (single-flight).
+ * <p>
+ * Первый запрос с данным ключом выполняет чтение, остальные запросы с тем же ключом, пришедшие
+ * до его завершения, ждут и получают тот же результат или ту же ошибку. Если для запроса задано окно,
+ * результат еще столько же отдается новым запросам без обращения к хранилищу.
+ * <p>
+ * После каждой записи вызывается {@link #invalidate()}, чтобы чтения, начатые после записи,
+ * не получили результат, прочитанный до нее.
+ * <p>
+ * Метрика {@code wishlist.coalescing.calls} с тегами {@code query} и {@code result}:
+ * {@code executed} - чтение выполнено, {@code joined} - присоединился к выполняющемуся чтению,
+ * {@code cached} - получил результат завершенного чтения в пределах окна
+ */
+public class ReadCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadCoalescer.class);
+
+    static final String METRIC_NAME = "wishlist.coalescing.calls";
+
+    /**
+     * Значения тега {@code result}, индекс - позиция счетчика в {@link #counters(String)}
+     */
+    private static final String[] RESULTS = {"executed", "joined", "cached"};
+    private static final int EXECUTED = 0;
+    private static final int JOINED = 1;
+    private static final int CACHED = 2;
+
+    private final ReadCoalescingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, Flight> flights = new ConcurrentHashMap<>();
+    /**
+     * Счетчики регистрируются один раз на имя запроса, чтение только увеличивает готовый счетчик
+     */
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    public ReadCoalescer(ReadCoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Выполняет чтение или присоединяется к такому же выполняющемуся чтению
+     *
+     * @param query    имя запроса, по нему выбирается окно объединения
+     * @param argument аргумент запроса, может быть {@code null}
+     * @param loader   чтение из хранилища
+     * @return результат чтения, общий для всех объединенных запросов. Списки возвращаются неизменяемыми
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String query, Object argument, Supplier<T> loader) {
+        if (!properties.enabled()) {
+            return loader.get();
+        }
+        Key key = new Key(query, argument);
+        long window = properties.windowFor(query).toNanos();
+        while (true) {
+            Flight existing = flights.get(key);
+            if (existing != null) {
+                if (!existing.future.isDone()) {
+                    counters(query)[JOINED].increment();
+                    return (T) existing.await();
+                }
+                if (existing.isFresh(window)) {
+                    counters(query)[CACHED].increment();
+                    return (T) existing.await();
+                }
+            }
+
+            Flight flight = new Flight();
+            boolean leader = existing == null ? flights.putIfAbsent(key, flight) == null : flights.replace(key, existing, flight);
+            if (leader) {
+                counters(query)[EXECUTED].increment();
+                return (T) lead(key, flight, window, loader);
+            }
+        }
+    }
+
+    /**
+     * Забывает выполняющиеся и завершенные чтения. Вызывается после каждой записи
+     */
+    public void invalidate() {
+        flights.clear();
+    }
+
+    private Object lead(Key key, Flight flight, long window, Supplier<?> loader) {
+        Object result;
+        try {
+            result = immutable(loader.get());
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.future.completeExceptionally(e);
+            throw e;
+        }
+        flight.completedAt = System.nanoTime();
+        if (window <= 0) {
+            flights.remove(key, flight);
+        }
+        flight.future.complete(result);
+        log.debug("Read {} completed", key);
+        return result;
+    }
+
+    private Counter[] counters(String query) {
+        Counter[] queryCounters = counters.get(query);
+        return queryCounters != null ? queryCounters : counters.computeIfAbsent(query, this::register);
+    }
+
+    private Counter[] register(String query) {
+        Counter[] queryCounters = new Counter[RESULTS.length];
+        for (int i = 0; i < RESULTS.length; i++) {
+            queryCounters[i] = Counter.builder(METRIC_NAME)
+                    .description("Reads executed or collapsed into an identical concurrent read")
+                    .tag("query", query)
+                    .tag("result", RESULTS[i])
+                    .register(meterRegistry);
+        }
+        return queryCounters;
+    }
+
+    /**
+     * Результат делится между запросами, поэтому списки отдаются только для чтения
+     */
+    private static Object immutable(Object result) {
+        return result instanceof List<?> list ? List.copyOf(list) : result;
+    }
+
+    private record Key(String query, Object argument) {
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        boolean isFresh(long window) {
+            return window > 0 && !future.isCompletedExceptionally() && System.nanoTime() - completedAt < window;
+        }
+
+        Object await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.berdennikov.wishlist.service.coalescing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Подключает объединение одинаковых одновременных чтений подарков
+ */
+@Configuration
+@EnableConfigurationProperties(ReadCoalescingProperties.class)
+public class ReadCoalescingConfig {
+
+    @Bean
+    public ReadCoalescer readCoalescer(ReadCoalescingProperties properties, MeterRegistry meterRegistry) {
+        return new ReadCoalescer(properties, meterRegistry);
+    }
+}
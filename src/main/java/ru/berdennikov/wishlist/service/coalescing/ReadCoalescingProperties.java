@@ -0,0 +1,32 @@
+package ru.berdennikov.wishlist.service.coalescing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Настройки объединения одинаковых одновременных чтений
+ *
+ * @param enabled включено ли объединение
+ * @param window  сколько после завершения чтения отдавать его результат новым запросам,
+ *                {@code 0} - объединять только одновременно выполняющиеся чтения
+ * @param windows окна для отдельных запросов по их имени, например {@code getAll}
+ */
+@ConfigurationProperties(prefix = "wishlist.coalescing")
+public record ReadCoalescingProperties(@DefaultValue("true") boolean enabled,
+                                       @DefaultValue("0ms") Duration window,
+                                       Map<String, Duration> windows) {
+
+    public ReadCoalescingProperties {
+        windows = windows == null ? Map.of() : Map.copyOf(windows);
+    }
+
+    /**
+     * Окно объединения для запроса с указанным именем
+     */
+    public Duration windowFor(String query) {
+        return windows.getOrDefault(query, window);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.berdennikov.wishlist.service.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.berdennikov.wishlist.repository.GiftHistoryRepository;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Обслуживает секции таблицы gift_history.
+ * <p>
+ * При запуске и затем по расписанию создает секции на {@code wishlist.history.partitions-ahead} месяцев вперед,
+ * чтобы записи истории не попадали в секцию по умолчанию. Если задан {@code retention}, удаляет секции,
+ * все записи которых старше этого срока: удаление секции не оставляет мертвых строк, в отличие от DELETE.
+ * Состояние подарков, не менявшихся с удаленных месяцев, сохраняется записью на начало оставшейся истории
+ */
+@Component
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftHistoryPartitionMaintainer {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftHistoryPartitionMaintainer.class);
+
+    private final GiftHistoryRepository repository;
+    private final HistoryProperties properties;
+    private Boolean supported;
+
+    @Autowired
+    public GiftHistoryPartitionMaintainer(GiftHistoryRepository repository, HistoryProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${wishlist.history.maintenance-interval:PT24H}")
+    public void maintainIfSupported() {
+        try {
+            if (supported == null) {
+                supported = repository.isSupported();
+            }
+            if (supported) {
+                maintain();
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to maintain gift history partitions", e);
+        }
+    }
+
+    public void maintain() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= properties.partitionsAhead(); i++) {
+            repository.createPartition(current.plusMonths(i));
+        }
+        if (properties.retention().isZero()) {
+            return;
+        }
+        // секция удаляется, только если весь ее месяц старше срока хранения
+        YearMonth firstKept = YearMonth.from(Instant.now().minus(properties.retention()).atZone(ZoneOffset.UTC));
+        for (YearMonth month : repository.dropPartitionsBefore(firstKept)) {
+            log.info("Dropped gift history partition for {}", month);
+        }
+    }
+}
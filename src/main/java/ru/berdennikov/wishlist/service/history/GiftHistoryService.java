@@ -0,0 +1,74 @@
+package ru.berdennikov.wishlist.service.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import ru.berdennikov.wishlist.exception.GiftNotFoundException;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftChange;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.repository.GiftHistoryRepository;
+import ru.berdennikov.wishlist.service.GiftService;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * История изменений подарков и состояние списка на момент в прошлом.
+ * Доступно только при хранении подарков в PostgreSQL
+ */
+@Service
+@EnableConfigurationProperties(HistoryProperties.class)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftHistoryService.class);
+
+    private final GiftHistoryRepository repository;
+    private final HistoryProperties properties;
+
+    @Autowired
+    public GiftHistoryService(GiftHistoryRepository repository, HistoryProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+    }
+
+    /**
+     * Возвращает историю изменений подарка, в том числе удаленного
+     *
+     * @param id    идентификатор подарка
+     * @param limit максимальное количество изменений
+     * @return изменения, начиная с самого нового
+     * @throws GiftNotFoundException    если изменений подарка нет
+     * @throws IllegalArgumentException если {@code limit} вне диапазона от 1 до {@code wishlist.history.max-changes}
+     */
+    public List<GiftChange> getHistory(long id, int limit) {
+        if (limit < 1 || limit > properties.maxChanges()) {
+            throw new IllegalArgumentException("limit must be from 1 to " + properties.maxChanges());
+        }
+        log.info("Get history of gift {}", id);
+        List<GiftChange> changes = repository.findByGiftId(id, limit);
+        if (changes.isEmpty()) {
+            throw new GiftNotFoundException(id);
+        }
+        return changes;
+    }
+
+    /**
+     * Возвращает список подарков в том виде, в котором он был в указанный момент
+     *
+     * @param asOf       момент времени
+     * @param importance важность или {@code null} для всех подарков
+     * @return список подарков в порядке {@link GiftService#getAll()}
+     */
+    public List<Gift> getAsOf(Instant asOf, Importance importance) {
+        log.info("Get gifts as of {}", asOf);
+        List<Gift> gifts = new ArrayList<>(repository.findAsOf(asOf, importance));
+        gifts.sort(GiftService.LIST_ORDER);
+        return gifts;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.berdennikov.wishlist.service.history;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки истории изменений подарков
+ *
+ * @param partitionsAhead на сколько месяцев вперед создавать секции таблицы gift_history
+ * @param retention       сколько хранить историю, {@code 0} - всегда. Удаляются только секции целиком
+ * @param maxChanges      максимальное количество изменений в ответе {@code GET /api/gifts/{id}/history}
+ */
+@ConfigurationProperties(prefix = "wishlist.history")
+public record HistoryProperties(@DefaultValue("3") int partitionsAhead,
+                                @DefaultValue("0s") Duration retention,
+                                @DefaultValue("1000") int maxChanges) {
+}
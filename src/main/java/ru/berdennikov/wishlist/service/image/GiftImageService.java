@@ -0,0 +1,163 @@
+package ru.berdennikov.wishlist.service.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.berdennikov.wishlist.exception.GiftNotFoundException;
+import ru.berdennikov.wishlist.exception.ImageTooLargeException;
+import ru.berdennikov.wishlist.model.GiftImage;
+import ru.berdennikov.wishlist.repository.GiftImageRepository;
+import ru.berdennikov.wishlist.service.GiftService;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Изображения подарков: загрузка, список, удаление и отдача файлов.
+ * <p>
+ * Публикация файла и запись метаданных, а также удаление метаданных и файла выполняются
+ * под блокировкой по хешу, чтобы удаление последнего прикрепления не стерло файл,
+ * который в этот момент прикрепляется к другому подарку. Доступно только при хранении подарков в базе данных
+ */
+@Service
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftImageService {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftImageService.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final GiftImageRepository repository;
+    private final GiftService giftService;
+    private final ImageStorage storage;
+    private final ThumbnailGenerator thumbnails;
+    private final ImageProperties properties;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public GiftImageService(GiftImageRepository repository, GiftService giftService, ImageStorage storage,
+                            ThumbnailGenerator thumbnails, ImageProperties properties) {
+        this.repository = repository;
+        this.giftService = giftService;
+        this.storage = storage;
+        this.thumbnails = thumbnails;
+        this.properties = properties;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Прикрепляет изображение к подарку. Содержимое пишется на диск по мере чтения потока
+     *
+     * @param giftId        идентификатор подарка
+     * @param input         содержимое изображения
+     * @param contentLength заявленный размер, {@code -1} если неизвестен
+     * @return метаданные изображения, существующие, если это изображение уже прикреплено к подарку
+     * @throws GiftNotFoundException    если подарок не найден
+     * @throws ImageTooLargeException   если изображение больше {@code wishlist.images.max-size}
+     * @throws IllegalArgumentException если формат изображения не поддерживается
+     */
+    public GiftImage upload(long giftId, InputStream input, long contentLength) throws IOException {
+        giftService.get(giftId);
+        long maxSize = properties.maxSize().toBytes();
+        if (contentLength > maxSize) {
+            throw new ImageTooLargeException(maxSize);
+        }
+        BufferedInputStream buffered = new BufferedInputStream(input);
+        buffered.mark(ImageFormats.HEADER_LENGTH);
+        String contentType = ImageFormats.detect(buffered.readNBytes(ImageFormats.HEADER_LENGTH));
+        if (contentType == null) {
+            throw new IllegalArgumentException("Unsupported image format, expected PNG, JPEG, GIF or WebP");
+        }
+        buffered.reset();
+
+        ImageStorage.Upload upload = storage.receive(buffered, maxSize);
+        GiftImage image;
+        try {
+            synchronized (lock(upload.hash())) {
+                storage.publish(upload);
+                Optional<GiftImage> existing = repository.findByHash(giftId, upload.hash());
+                image = existing.isPresent()
+                        ? existing.get()
+                        : repository.insert(giftId, upload.hash(), contentType, upload.size());
+            }
+        } finally {
+            storage.discard(upload);
+        }
+        log.info("Image {} ({} bytes) attached to gift {}", image.hash(), image.size(), giftId);
+        thumbnails.submit(image.hash());
+        return image;
+    }
+
+    /**
+     * @throws GiftNotFoundException если подарок не найден
+     */
+    public List<GiftImage> getAll(long giftId) {
+        giftService.get(giftId);
+        return repository.findByGiftId(giftId);
+    }
+
+    /**
+     * Открепляет изображение от подарка. Файл удаляется, когда изображение не прикреплено ни к одному подарку
+     *
+     * @return {@code false}, если у подарка нет такого изображения
+     */
+    public boolean delete(long giftId, long imageId) throws IOException {
+        Optional<GiftImage> image = repository.findById(giftId, imageId);
+        if (image.isEmpty()) {
+            return false;
+        }
+        String hash = image.get().hash();
+        synchronized (lock(hash)) {
+            if (!repository.delete(imageId)) {
+                return false;
+            }
+            if (repository.countByHash(hash) == 0) {
+                storage.delete(hash);
+                log.info("Image {} is no longer used and was deleted", hash);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param hash хеш изображения
+     * @return файл изображения, если изображение с таким хешем прикреплено хотя бы к одному подарку
+     */
+    public Optional<ImageContent> getContent(String hash) {
+        if (!storage.exists(hash)) {
+            return Optional.empty();
+        }
+        return repository.findContentType(hash)
+                .map(contentType -> new ImageContent(storage.path(hash), contentType, "\"" + hash + "\""));
+    }
+
+    /**
+     * Возвращает миниатюру изображения. Если миниатюры еще нет, ставит ее построение в очередь
+     *
+     * @param hash хеш изображения
+     * @return файл миниатюры, если она уже построена
+     */
+    public Optional<ImageContent> getThumbnail(String hash) {
+        if (!storage.exists(hash)) {
+            return Optional.empty();
+        }
+        if (Files.isRegularFile(storage.thumbnailPath(hash))) {
+            return Optional.of(new ImageContent(storage.thumbnailPath(hash), ThumbnailGenerator.CONTENT_TYPE,
+                    "\"" + hash + "-thumb\""));
+        }
+        thumbnails.submit(hash);
+        return Optional.empty();
+    }
+
+    private Object lock(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+}
@@ -0,0 +1,13 @@
+package ru.berdennikov.wishlist.service.image;
+
+import java.nio.file.Path;
+
+/**
+ * Файл изображения для отдачи клиенту
+ *
+ * @param path        путь к файлу
+ * @param contentType тип содержимого
+ * @param etag        строгий ETag в кавычках, не меняется, пока существует файл
+ */
+public record ImageContent(Path path, String contentType, String etag) {
+}
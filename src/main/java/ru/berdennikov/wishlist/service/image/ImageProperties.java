@@ -0,0 +1,29 @@
+package ru.berdennikov.wishlist.service.image;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки изображений подарков
+ *
+ * @param directory          каталог для файлов изображений и миниатюр
+ * @param maxSize            максимальный размер загружаемого изображения
+ * @param thumbnailSize      размер большей стороны миниатюры в пикселях
+ * @param thumbnailThreads   количество потоков построения миниатюр
+ * @param thumbnailQueue     сколько миниатюр может ждать построения, остальные строятся при первом запросе
+ * @param maxPixels          изображения с большим количеством пикселей не декодируются для миниатюры
+ * @param cacheMaxAge        срок кеширования изображений клиентами, содержимое по адресу никогда не меняется
+ */
+@ConfigurationProperties(prefix = "wishlist.images")
+public record ImageProperties(@DefaultValue("data/images") Path directory,
+                              @DefaultValue("10MB") DataSize maxSize,
+                              @DefaultValue("256") int thumbnailSize,
+                              @DefaultValue("2") int thumbnailThreads,
+                              @DefaultValue("100") int thumbnailQueue,
+                              @DefaultValue("50000000") long maxPixels,
+                              @DefaultValue("365d") Duration cacheMaxAge) {
+}
@@ -0,0 +1,166 @@
+package ru.berdennikov.wishlist.service.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import ru.berdennikov.wishlist.exception.ImageTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище файлов изображений с адресацией по содержимому.
+ * <p>
+ * Файл лежит по пути {@code <directory>/ab/cd/abcd...}, где {@code abcd...} - SHA-256 содержимого,
+ * миниатюра рядом с суффиксом {@code .thumb}. Одинаковые файлы хранятся один раз.
+ * Загрузка сначала пишется во временный файл в том же каталоге и затем атомарно переименовывается,
+ * поэтому по адресу никогда не бывает недописанного файла
+ */
+@Component
+@EnableConfigurationProperties(ImageProperties.class)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class ImageStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStorage.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String THUMBNAIL_SUFFIX = ".thumb";
+
+    private final Path directory;
+    private final Path temporaryDirectory;
+
+    @Autowired
+    public ImageStorage(ImageProperties properties) {
+        this.directory = properties.directory().toAbsolutePath().normalize();
+        this.temporaryDirectory = directory.resolve("tmp");
+        try {
+            Files.createDirectories(temporaryDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create image directory " + directory, e);
+        }
+    }
+
+    /**
+     * Копирует поток во временный файл, одновременно считая SHA-256. В памяти находится только буфер копирования
+     *
+     * @param input   содержимое
+     * @param maxSize максимальный размер
+     * @return принятый файл, который нужно опубликовать или удалить
+     * @throws ImageTooLargeException если содержимое больше {@code maxSize}
+     */
+    public Upload receive(InputStream input, long maxSize) throws IOException {
+        MessageDigest digest = sha256();
+        Path temporary = Files.createTempFile(temporaryDirectory, "upload-", ".tmp");
+        long size = 0;
+        try (OutputStream output = Files.newOutputStream(temporary)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new ImageTooLargeException(maxSize);
+                }
+                digest.update(buffer, 0, read);
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return new Upload(temporary, HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    /**
+     * Переносит принятый файл по его адресу. Если файл с таким содержимым уже есть, принятый файл удаляется
+     */
+    public void publish(Upload upload) throws IOException {
+        Path target = path(upload.hash());
+        try {
+            if (Files.exists(target)) {
+                log.debug("Image {} already stored", upload.hash());
+                return;
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(upload.file(), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            log.debug("Image {} stored concurrently", upload.hash());
+        } finally {
+            Files.deleteIfExists(upload.file());
+        }
+    }
+
+    public void discard(Upload upload) {
+        try {
+            Files.deleteIfExists(upload.file());
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file {}", upload.file(), e);
+        }
+    }
+
+    /**
+     * Удаляет изображение и его миниатюру
+     */
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(thumbnailPath(hash));
+        Files.deleteIfExists(path(hash));
+    }
+
+    public boolean exists(String hash) {
+        return isHash(hash) && Files.isRegularFile(path(hash));
+    }
+
+    public Path path(String hash) {
+        if (!isHash(hash)) {
+            throw new IllegalArgumentException("Invalid image hash " + hash);
+        }
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public Path thumbnailPath(String hash) {
+        Path path = path(hash);
+        return path.resolveSibling(path.getFileName() + THUMBNAIL_SUFFIX);
+    }
+
+    /**
+     * Временный файл в каталоге хранилища, его можно атомарно переименовать в любой адрес хранилища
+     */
+    public Path createTemporaryFile() throws IOException {
+        return Files.createTempFile(temporaryDirectory, "thumbnail-", ".tmp");
+    }
+
+    public static boolean isHash(String value) {
+        return value != null && HASH.matcher(value).matches();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Принятый, но еще не опубликованный файл
+     *
+     * @param file временный файл
+     * @param hash SHA-256 содержимого
+     * @param size размер в байтах
+     */
+    public record Upload(Path file, String hash, long size) {
+    }
+}
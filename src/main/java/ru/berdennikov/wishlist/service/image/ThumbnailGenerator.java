@@ -0,0 +1,189 @@
+package ru.berdennikov.wishlist.service.image;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Строит миниатюры изображений в фоне.
+ * <p>
+ * Пул потоков и очередь ограничены: при переполнении задача отбрасывается, и миниатюра строится
+ * при следующем запросе к ней. Потоки запросов миниатюры не строят никогда
+ */
+@Component
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class ThumbnailGenerator implements AutoCloseable {
+
+    public static final String CONTENT_TYPE = "image/jpeg";
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailGenerator.class);
+
+    private static final String METRIC_NAME = "wishlist.images.thumbnails";
+
+    private final ImageStorage storage;
+    private final int size;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Counter generated;
+    private final Counter failed;
+    private final Counter rejected;
+
+    @Autowired
+    public ThumbnailGenerator(ImageStorage storage, ImageProperties properties, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.size = properties.thumbnailSize();
+        this.maxPixels = properties.maxPixels();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.thumbnailThreads(), properties.thumbnailThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.thumbnailQueue()), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        this.generated = counter(meterRegistry, "generated");
+        this.failed = counter(meterRegistry, "failed");
+        this.rejected = counter(meterRegistry, "rejected");
+    }
+
+    /**
+     * Ставит построение миниатюры в очередь, если ее еще нет и она еще не строится
+     *
+     * @param hash хеш изображения
+     */
+    public void submit(String hash) {
+        if (Files.exists(storage.thumbnailPath(hash)) || !pending.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(hash);
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(hash);
+            rejected.increment();
+            log.debug("Thumbnail queue is full, thumbnail for {} is postponed", hash);
+        }
+    }
+
+    private void generate(String hash) {
+        Path thumbnail = storage.thumbnailPath(hash);
+        if (Files.exists(thumbnail)) {
+            return;
+        }
+        Path temporary = null;
+        try {
+            BufferedImage image = read(storage.path(hash));
+            if (image == null) {
+                return;
+            }
+            temporary = storage.createTemporaryFile();
+            if (!ImageIO.write(scale(image), "jpg", temporary.toFile())) {
+                throw new IOException("No JPEG writer");
+            }
+            Files.move(temporary, thumbnail, StandardCopyOption.ATOMIC_MOVE);
+            generated.increment();
+            log.debug("Thumbnail for {} generated", hash);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Failed to generate thumbnail for {}: {}", hash, e.getMessage());
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    log.warn("Failed to delete temporary file {}", temporary, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Декодирует изображение с прореживанием строк и столбцов, чтобы в памяти не оказалось полноразмерного растра
+     *
+     * @return изображение или {@code null}, если формат не поддерживается или изображение слишком большое
+     */
+    private BufferedImage read(Path path) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.debug("No image reader for {}", path.getFileName());
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long width = reader.getWidth(0);
+                long height = reader.getHeight(0);
+                if (width * height > maxPixels) {
+                    log.warn("Image {} is {}x{} pixels, thumbnail is not generated", path.getFileName(), width, height);
+                    return null;
+                }
+                int step = (int) Math.max(1, Math.max(width, height) / (2L * size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image) {
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC_NAME)
+                .description("Thumbnails generated in the background")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
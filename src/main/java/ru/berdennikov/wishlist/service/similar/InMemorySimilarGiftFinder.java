@@ -0,0 +1,237 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.repository.GiftRepository;
+import ru.berdennikov.wishlist.repository.memory.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Поиск похожих подарков по инвертированному индексу триграмм в памяти, для хранилищ без pg_trgm.
+ * <p>
+ * Для каждой триграммы хранится список подарков, в названии которых она есть. Чтобы не обходить длинные
+ * списки частых триграмм, кандидаты берутся только из списков самых редких триграмм запроса: при пороге
+ * {@code t} похожий подарок обязан содержать хотя бы {@code ceil(t * n)} из {@code n} триграмм запроса,
+ * значит, хотя бы одну из {@code n - ceil(t * n) + 1} самых редких. Кандидаты проверяются точным расчетом
+ * похожести, найденные подарки перечитываются из хранилища и проверяются по их текущему названию.
+ * <p>
+ * Индекс строится из хранилища при первом поиске и после {@link #invalidate()}
+ */
+public class InMemorySimilarGiftFinder implements SimilarGiftFinder {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemorySimilarGiftFinder.class);
+
+    private static final Comparator<SimilarGift> MOST_SIMILAR_FIRST = Comparator
+            .comparingDouble(SimilarGift::similarity).reversed()
+            .thenComparing(similar -> similar.gift().getId());
+
+    private final GiftRepository repository;
+    private final double threshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongObjectHashMap<long[]> trigramsById = new LongObjectHashMap<>(1024);
+    private final LongObjectHashMap<Posting> postings = new LongObjectHashMap<>(4096);
+    private volatile boolean stale = true;
+
+    public InMemorySimilarGiftFinder(GiftRepository repository, SimilarityProperties properties) {
+        this.repository = repository;
+        this.threshold = properties.threshold();
+    }
+
+    @Override
+    public List<SimilarGift> findSimilar(String title, int limit) {
+        long[] query = Trigrams.of(title);
+        if (query.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        if (stale) {
+            rebuild();
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (long id : candidateIds(query)) {
+                long[] trigrams = trigramsById.get(id);
+                if (trigrams != null && trigrams.length >= threshold * query.length
+                        && trigrams.length * threshold <= query.length) {
+                    double similarity = Trigrams.similarity(query, trigrams);
+                    if (similarity >= threshold) {
+                        candidates.add(new Candidate(id, similarity));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::similarity).reversed().thenComparingLong(Candidate::id));
+
+        List<SimilarGift> similar = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            Optional<Gift> gift = repository.findById(candidate.id());
+            // индекс мог отстать от хранилища, поэтому похожесть пересчитывается по текущему названию
+            double similarity = gift.map(g -> Trigrams.similarity(query, Trigrams.of(g.getTitle()))).orElse(0.0);
+            if (similarity >= threshold) {
+                similar.add(new SimilarGift(gift.get(), similarity));
+                if (similar.size() == limit) {
+                    break;
+                }
+            }
+        }
+        similar.sort(MOST_SIMILAR_FIRST);
+        return similar;
+    }
+
+    @Override
+    public void added(Gift gift) {
+        if (gift == null || gift.getId() == null || stale) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(gift.getId());
+            add(gift.getId(), Trigrams.of(gift.getTitle()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removed(Long id) {
+        if (id == null || stale) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Кандидаты из списков самых редких триграмм запроса, без повторов
+     */
+    private long[] candidateIds(long[] query) {
+        Posting[] lists = new Posting[query.length];
+        for (int i = 0; i < query.length; i++) {
+            Posting posting = postings.get(query[i]);
+            lists[i] = posting != null ? posting : Posting.EMPTY;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(Posting::size));
+        int minShared = Math.max(1, (int) Math.ceil(threshold * query.length));
+        int prefix = Math.min(lists.length, query.length - minShared + 1);
+
+        int total = 0;
+        for (int i = 0; i < prefix; i++) {
+            total += lists[i].size();
+        }
+        long[] ids = new long[total];
+        int count = 0;
+        for (int i = 0; i < prefix; i++) {
+            System.arraycopy(lists[i].ids, 0, ids, count, lists[i].size());
+            count += lists[i].size();
+        }
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (!stale) {
+                return;
+            }
+            long start = System.nanoTime();
+            trigramsById.clear();
+            postings.clear();
+            // флаг сбрасывается до чтения, чтобы изменения во время чтения снова пометили индекс устаревшим
+            stale = false;
+            List<Gift> gifts = repository.findAll();
+            for (Gift gift : gifts) {
+                add(gift.getId(), Trigrams.of(gift.getTitle()));
+            }
+            log.info("Trigram index of {} gifts built in {} ms", gifts.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(long id, long[] trigrams) {
+        trigramsById.put(id, trigrams);
+        for (long trigram : trigrams) {
+            Posting posting = postings.get(trigram);
+            if (posting == null) {
+                posting = new Posting();
+                postings.put(trigram, posting);
+            }
+            posting.add(id);
+        }
+    }
+
+    private void remove(long id) {
+        long[] trigrams = trigramsById.remove(id);
+        if (trigrams == null) {
+            return;
+        }
+        for (long trigram : trigrams) {
+            Posting posting = postings.get(trigram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.size() == 0) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private record Candidate(long id, double similarity) {
+    }
+
+    /**
+     * Список подарков, в названии которых есть триграмма
+     */
+    private static final class Posting {
+
+        private static final Posting EMPTY = new Posting();
+
+        private long[] ids = new long[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.util.List;
+
+/**
+ * Поиск похожих подарков расширением pg_trgm.
+ * <p>
+ * Оператор {@code %} использует GIN индекс gift_title_trgm_idx и порог {@code pg_trgm.similarity_threshold},
+ * который устанавливается только на время транзакции поиска
+ */
+public class PgTrgmSimilarGiftFinder implements SimilarGiftFinder {
+
+    private static final String SET_THRESHOLD = "SELECT set_config('pg_trgm.similarity_threshold', ?, true)";
+
+    private static final String SELECT_SIMILAR = """
+            SELECT id, title, description, importance, sort_key, similarity(title, ?) AS similarity
+            FROM gift
+            WHERE deleted_at IS NULL AND title % ?
+            ORDER BY similarity DESC, id
+            LIMIT ?""";
+
+    private static final RowMapper<SimilarGift> ROW_MAPPER = (resultSet, rowNum) -> {
+        Gift gift = new Gift(resultSet.getLong("id"), resultSet.getString("title"),
+                resultSet.getString("description"), Importance.valueOf(resultSet.getString("importance")));
+        gift.setSortKey(resultSet.getString("sort_key"));
+        return new SimilarGift(gift, resultSet.getDouble("similarity"));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String threshold;
+
+    public PgTrgmSimilarGiftFinder(JdbcTemplate jdbcTemplate, SimilarityProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.threshold = Double.toString(properties.threshold());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimilarGift> findSimilar(String title, int limit) {
+        if (title == null || title.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        jdbcTemplate.queryForList(SET_THRESHOLD, String.class, threshold);
+        return jdbcTemplate.query(SELECT_SIMILAR, ROW_MAPPER, title, title, limit);
+    }
+}
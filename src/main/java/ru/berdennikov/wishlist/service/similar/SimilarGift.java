@@ -0,0 +1,12 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import ru.berdennikov.wishlist.model.Gift;
+
+/**
+ * Подарок с похожим названием
+ *
+ * @param gift       подарок
+ * @param similarity похожесть названия от 0 до 1
+ */
+public record SimilarGift(Gift gift, double similarity) {
+}
@@ -0,0 +1,44 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.berdennikov.wishlist.repository.GiftRepository;
+
+import java.util.List;
+
+/**
+ * Выбирает реализацию поиска похожих подарков: pg_trgm на PostgreSQL, индекс в памяти на остальных хранилищах.
+ * При {@code wishlist.similarity.enabled: false} похожие подарки не ищутся
+ */
+@Configuration
+@EnableConfigurationProperties(SimilarityProperties.class)
+public class SimilarGiftConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SimilarGiftConfig.class);
+
+    @Bean
+    public SimilarGiftFinder similarGiftFinder(SimilarityProperties properties, GiftRepository repository,
+                                               ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        if (!properties.enabled()) {
+            return (title, limit) -> List.of();
+        }
+        JdbcTemplate jdbc = jdbcTemplate.getIfAvailable();
+        if (jdbc != null && isPostgres(jdbc)) {
+            log.info("Similar gifts are searched with pg_trgm");
+            return new PgTrgmSimilarGiftFinder(jdbc, properties);
+        }
+        log.info("Similar gifts are searched with the in-memory trigram index");
+        return new InMemorySimilarGiftFinder(repository, properties);
+    }
+
+    private static boolean isPostgres(JdbcTemplate jdbcTemplate) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())));
+    }
+}
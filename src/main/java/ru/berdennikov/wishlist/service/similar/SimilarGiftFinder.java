@@ -0,0 +1,39 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import ru.berdennikov.wishlist.model.Gift;
+
+import java.util.List;
+
+/**
+ * Поиск подарков с похожими названиями по триграммам.
+ * <p>
+ * На PostgreSQL поиск выполняет pg_trgm по GIN индексу, на остальных хранилищах - инвертированный индекс
+ * триграмм в памяти, который {@link ru.berdennikov.wishlist.service.GiftService} обновляет при изменениях
+ */
+public interface SimilarGiftFinder {
+
+    /**
+     * @param title название
+     * @param limit максимальное количество подарков
+     * @return подарки с похожестью названия не ниже {@code wishlist.similarity.threshold}, начиная с самых похожих
+     */
+    List<SimilarGift> findSimilar(String title, int limit);
+
+    /**
+     * Подарок создан или изменен
+     */
+    default void added(Gift gift) {
+    }
+
+    /**
+     * Подарок удален
+     */
+    default void removed(Long id) {
+    }
+
+    /**
+     * Подарки изменены в обход {@link #added} и {@link #removed}, например массовым запросом
+     */
+    default void invalidate() {
+    }
+}
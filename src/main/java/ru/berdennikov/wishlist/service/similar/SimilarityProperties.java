@@ -0,0 +1,15 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки поиска похожих подарков
+ *
+ * @param enabled   проверять ли новые подарки на похожие по названию
+ * @param threshold минимальная похожесть названий от 0 до 1: доля общих триграмм среди всех триграмм двух названий
+ */
+@ConfigurationProperties(prefix = "wishlist.similarity")
+public record SimilarityProperties(@DefaultValue("true") boolean enabled,
+                                   @DefaultValue("0.5") double threshold) {
+}
@@ -0,0 +1,83 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Триграммы названий по правилам pg_trgm: текст приводится к нижнему регистру и делится на слова
+ * из букв и цифр, каждое слово дополняется двумя пробелами в начале и одним в конце.
+ * Поэтому порядок слов не влияет на похожесть: "Набор Lego" и "Lego набор" совпадают полностью.
+ * Триграмма кодируется числом {@code long} из трех символов UTF-16
+ */
+final class Trigrams {
+
+    private static final long[] EMPTY = new long[0];
+
+    private Trigrams() {
+    }
+
+    /**
+     * @return коды различных триграмм текста по возрастанию
+     */
+    static long[] of(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        long[] codes = new long[lower.length() * 2 + 2];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String word = "  " + lower.substring(start, i) + " ";
+                for (int j = 0; j + 3 <= word.length(); j++) {
+                    if (count == codes.length) {
+                        codes = Arrays.copyOf(codes, codes.length * 2);
+                    }
+                    codes[count++] = code(word.charAt(j), word.charAt(j + 1), word.charAt(j + 2));
+                }
+                start = -1;
+            }
+        }
+        Arrays.sort(codes, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || codes[unique - 1] != codes[i]) {
+                codes[unique++] = codes[i];
+            }
+        }
+        return Arrays.copyOf(codes, unique);
+    }
+
+    /**
+     * Похожесть как в pg_trgm: количество общих триграмм, деленное на количество триграмм в объединении
+     *
+     * @param a триграммы по возрастанию
+     * @param b триграммы по возрастанию
+     */
+    static double similarity(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+
+    private static long code(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+}
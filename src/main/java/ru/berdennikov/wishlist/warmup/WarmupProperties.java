@@ -0,0 +1,27 @@
+package ru.berdennikov.wishlist.warmup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки прогрева приложения перед приемом трафика
+ *
+ * @param enabled         включен ли прогрев
+ * @param iterations      сколько раз повторить чтения через сервис и каждый HTTP запрос
+ * @param concurrency     количество потоков синтетической нагрузки
+ * @param timeout         максимальная длительность прогрева, после нее приложение принимает трафик как есть
+ * @param poolConnections сколько соединений открыть заранее, {@code 0} - минимальный размер пула Hikari
+ * @param paths           адреса только для чтения, которые запрашиваются по HTTP
+ */
+@ConfigurationProperties(prefix = "wishlist.warmup")
+public record WarmupProperties(@DefaultValue("true") boolean enabled,
+                               @DefaultValue("200") int iterations,
+                               @DefaultValue("4") int concurrency,
+                               @DefaultValue("60s") Duration timeout,
+                               @DefaultValue("0") int poolConnections,
+                               @DefaultValue({"/api/gifts", "/api/gifts?importance=HIGH", "/gifts",
+                                       "/gifts?importance=HIGH", "/gifts/create"}) List<String> paths) {
+}
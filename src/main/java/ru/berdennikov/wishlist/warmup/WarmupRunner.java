@@ -0,0 +1,187 @@
+package ru.berdennikov.wishlist.warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.service.GiftService;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прогревает приложение до того, как оно начнет принимать трафик.
+ * <p>
+ * Выполняется как {@link ApplicationRunner}: Spring Boot переводит приложение в состояние готовности
+ * ({@code /actuator/health/readiness}) только после завершения всех раннеров. За время прогрева
+ * открываются соединения пула, выполняются чтения через {@link GiftService} и GET запросы к REST API
+ * и страницам, чтобы JIT скомпилировал горячие пути, а Jackson и Thymeleaf заполнили свои кеши.
+ * <p>
+ * Ошибки прогрева не мешают запуску приложения, они только записываются в лог
+ */
+@Component
+@EnableConfigurationProperties(WarmupProperties.class)
+@ConditionalOnProperty(prefix = "wishlist.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final WarmupProperties properties;
+    private final GiftService giftService;
+    private final ObjectProvider<DataSource> dataSource;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public WarmupRunner(WarmupProperties properties, GiftService giftService, ObjectProvider<DataSource> dataSource,
+                        Environment environment, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.giftService = giftService;
+        this.dataSource = dataSource;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        long deadline = start + properties.timeout().toNanos();
+        log.info("Warm-up started");
+
+        int connections = prefillPool();
+        int serviceErrors = run("service", deadline, this::readThroughService);
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        int httpErrors = port != null ? run("http", deadline, httpReads(port)) : 0;
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        Timer.builder("wishlist.warmup.duration")
+                .description("Time spent warming up before accepting traffic")
+                .register(meterRegistry)
+                .record(elapsed);
+        log.info("Warm-up finished in {} ms: {} pool connections opened, {} service errors, {} HTTP errors{}",
+                elapsed.toMillis(), connections, serviceErrors, httpErrors,
+                System.nanoTime() > deadline ? ", stopped by timeout" : "");
+    }
+
+    /**
+     * Открывает соединения пула одновременно и сразу возвращает их, чтобы первые запросы не ждали подключения к базе
+     *
+     * @return количество открытых соединений
+     */
+    private int prefillPool() {
+        DataSource source = dataSource.getIfAvailable();
+        if (source == null) {
+            return 0;
+        }
+        List<Connection> connections = new ArrayList<>();
+        try {
+            int count = properties.poolConnections();
+            if (count <= 0 && source.isWrapperFor(HikariDataSource.class)) {
+                count = source.unwrap(HikariDataSource.class).getMinimumIdle();
+            }
+            for (int i = 0; i < count; i++) {
+                Connection connection = source.getConnection();
+                connections.add(connection);
+                connection.isValid((int) REQUEST_TIMEOUT.toSeconds());
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Warm-up failed to prefill the connection pool: {}", e.getMessage());
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Warm-up failed to release a connection: {}", e.getMessage());
+                }
+            }
+        }
+        return connections.size();
+    }
+
+    private void readThroughService() {
+        giftService.getAll();
+        for (Importance importance : Importance.values()) {
+            giftService.getByImportance(importance);
+        }
+    }
+
+    private WarmupTask httpReads(int port) {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        List<URI> uris = properties.paths().stream().map(path -> URI.create("http://localhost:" + port + path)).toList();
+        return () -> {
+            for (URI uri : uris) {
+                HttpRequest request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET().build();
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    throw new IllegalStateException("GET " + uri.getPath() + " returned " + response.statusCode());
+                }
+            }
+        };
+    }
+
+    /**
+     * Выполняет задачу {@code iterations} раз в {@code concurrency} потоков или до истечения времени прогрева
+     *
+     * @return количество неудачных повторов
+     */
+    private int run(String name, long deadline, WarmupTask task) {
+        AtomicInteger remaining = new AtomicInteger(properties.iterations());
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.concurrency()));
+        for (int i = 0; i < Math.max(1, properties.concurrency()); i++) {
+            executor.execute(() -> {
+                while (remaining.getAndDecrement() > 0 && System.nanoTime() < deadline) {
+                    try {
+                        task.run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        if (errors.getAndIncrement() == 0) {
+                            log.warn("Warm-up {} step failed: {}", name, e.getMessage());
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        return errors.get();
+    }
+
+    @FunctionalInterface
+    private interface WarmupTask {
+        void run() throws Exception;
+    }
+}
@@ -1,20 +1,23 @@
 package ru.berdennikov.wishlist.web.config;
 
-import org.springframework.context.MessageSource;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import ru.berdennikov.wishlist.web.i18n.MessagesEndpoint;
+import ru.berdennikov.wishlist.web.i18n.MessagesProperties;
+import ru.berdennikov.wishlist.web.i18n.PrecompiledMessageSource;
 
 @Configuration
+@EnableConfigurationProperties(MessagesProperties.class)
 public class I18NConfig {
 
+    @Bean(destroyMethod = "close")
+    public PrecompiledMessageSource messageSource(MessagesProperties properties) {
+        return new PrecompiledMessageSource(properties);
+    }
+
     @Bean
-    public MessageSource messageSource() {
-        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
-        messageSource.setCacheSeconds(5);
-        messageSource.setDefaultEncoding("UTF-8");
-        messageSource.setFallbackToSystemLocale(false);
-        messageSource.setBasenames("classpath:messages/app");
-        return messageSource;
+    public MessagesEndpoint messagesEndpoint(PrecompiledMessageSource messageSource) {
+        return new MessagesEndpoint(messageSource);
     }
 }
@@ -0,0 +1,49 @@
+package ru.berdennikov.wishlist.web.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.berdennikov.wishlist.exception.GiftNotFoundException;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.service.archive.GiftArchiveService;
+
+/**
+ * Восстановление удаленных подарков. Доступно только при хранении подарков в базе данных
+ */
+@RestController
+@RequestMapping(value = GiftRestController.REST_GIFT_URL)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftArchiveRestController {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftArchiveRestController.class);
+
+    private final GiftArchiveService archiveService;
+
+    @Autowired
+    public GiftArchiveRestController(GiftArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    /**
+     * Восстанавливает удаленный подарок
+     *
+     * @param id идентификатор подарка
+     * @return восстановленный подарок в формате JSON. 200 OK. 404 Not Found если удаленного подарка нет
+     */
+    @PostMapping("/{id}/restore")
+    public ResponseEntity<Gift> restore(@PathVariable long id) {
+        try {
+            log.info("Restore gift with id {}", id);
+            return ResponseEntity.ok().body(archiveService.restore(id));
+        } catch (GiftNotFoundException exception) {
+            log.error("Restore gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.berdennikov.wishlist.web.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.berdennikov.wishlist.exception.GiftNotFoundException;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftChange;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.service.history.GiftHistoryService;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * История изменений подарков и список подарков на момент в прошлом.
+ * Доступно только при хранении подарков в базе данных
+ */
+@RestController
+@RequestMapping(value = GiftRestController.REST_GIFT_URL)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftHistoryRestController {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftHistoryRestController.class);
+
+    private final GiftHistoryService historyService;
+
+    @Autowired
+    public GiftHistoryRestController(GiftHistoryService historyService) {
+        this.historyService = historyService;
+    }
+
+    /**
+     * Возвращает историю изменений подарка, в том числе удаленного
+     *
+     * @param id    идентификатор подарка
+     * @param limit максимальное количество изменений
+     * @return изменения в формате JSON, начиная с самого нового. 200 OK. 404 если изменений нет.
+     * 400 если {@code limit} вне допустимого диапазона
+     */
+    @GetMapping("/{id}/history")
+    public ResponseEntity<List<GiftChange>> getHistory(@PathVariable long id,
+                                                       @RequestParam(defaultValue = "100") int limit) {
+        try {
+            log.info("Get history of gift with id {}", id);
+            return ResponseEntity.ok().body(historyService.getHistory(id, limit));
+        } catch (GiftNotFoundException exception) {
+            log.error("Get history of gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException exception) {
+            log.error("Get history of gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Возвращает список подарков в том виде, в котором он был в указанный момент
+     *
+     * @param asOf       момент времени в формате ISO-8601, например {@code 2024-05-01T12:00:00Z}
+     * @param importance важность, если не указана - все подарки
+     * @return список подарков в формате JSON. 200 OK
+     */
+    @GetMapping(params = "asOf")
+    public ResponseEntity<List<Gift>> getAsOf(@RequestParam Instant asOf,
+                                              @RequestParam(required = false) Importance importance) {
+        log.info("Get gifts as of {}", asOf);
+        return ResponseEntity.ok().body(historyService.getAsOf(asOf, importance));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.berdennikov.wishlist.web.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.berdennikov.wishlist.exception.GiftNotFoundException;
+import ru.berdennikov.wishlist.exception.ImageTooLargeException;
+import ru.berdennikov.wishlist.model.GiftImage;
+import ru.berdennikov.wishlist.service.image.GiftImageService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Изображения подарка. Доступно только при хранении подарков в базе данных
+ */
+@RestController
+@RequestMapping(value = GiftRestController.REST_GIFT_URL)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class GiftImageRestController {
+
+    private static final Logger log = LoggerFactory.getLogger(GiftImageRestController.class);
+
+    private final GiftImageService imageService;
+
+    @Autowired
+    public GiftImageRestController(GiftImageService imageService) {
+        this.imageService = imageService;
+    }
+
+    /**
+     * Прикрепляет изображение к подарку. Тело запроса - файл изображения (PNG, JPEG, GIF или WebP),
+     * оно не буферизуется в памяти и пишется на диск по мере получения
+     *
+     * @param id      идентификатор подарка
+     * @param request запрос с изображением в теле
+     * @return метаданные изображения в формате JSON. 201 Created, Location - адрес изображения.
+     * 404 если подарок не найден. 400 если формат не поддерживается. 413 если изображение слишком большое
+     */
+    @PostMapping(value = "/{id}/images", consumes = "image/*")
+    public ResponseEntity<GiftImage> upload(@PathVariable long id, HttpServletRequest request) throws IOException {
+        try {
+            log.info("Upload image for gift with id {}", id);
+            GiftImage image = imageService.upload(id, request.getInputStream(), request.getContentLengthLong());
+            return ResponseEntity.created(URI.create(ImageContentController.IMAGE_URL + "/" + image.hash())).body(image);
+        } catch (GiftNotFoundException exception) {
+            log.error("Upload image for gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (ImageTooLargeException exception) {
+            log.error("Upload image for gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (IllegalArgumentException exception) {
+            log.error("Upload image for gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Возвращает изображения подарка
+     *
+     * @param id идентификатор подарка
+     * @return список метаданных изображений в формате JSON. 200 OK. 404 если подарок не найден
+     */
+    @GetMapping("/{id}/images")
+    public ResponseEntity<List<GiftImage>> getAll(@PathVariable long id) {
+        try {
+            log.info("Get images of gift with id {}", id);
+            return ResponseEntity.ok().body(imageService.getAll(id));
+        } catch (GiftNotFoundException exception) {
+            log.error("Get images of gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Открепляет изображение от подарка
+     *
+     * @param id      идентификатор подарка
+     * @param imageId идентификатор изображения
+     * @return 204 No Content. 404 если у подарка нет такого изображения
+     */
+    @DeleteMapping("/{id}/images/{imageId}")
+    public ResponseEntity<Void> delete(@PathVariable long id, @PathVariable long imageId) throws IOException {
+        log.info("Delete image {} of gift with id {}", imageId, id);
+        if (!imageService.delete(id, imageId)) {
+            log.error("Image {} of gift with id {} not found", imageId, id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
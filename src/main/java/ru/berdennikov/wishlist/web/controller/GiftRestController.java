@@ -4,10 +4,12 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -16,10 +18,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.berdennikov.wishlist.exception.DuplicateGiftException;
 import ru.berdennikov.wishlist.exception.GiftNotFoundException;
 import ru.berdennikov.wishlist.model.Gift;
 import ru.berdennikov.wishlist.model.Importance;
 import ru.berdennikov.wishlist.service.GiftService;
+import ru.berdennikov.wishlist.service.similar.SimilarGift;
+import ru.berdennikov.wishlist.web.dto.BulkOperationResult;
+import ru.berdennikov.wishlist.web.dto.DuplicateGifts;
+import ru.berdennikov.wishlist.web.dto.GiftMove;
+import ru.berdennikov.wishlist.web.dto.ImportanceChange;
 
 import java.net.URI;
 import java.util.List;
@@ -30,6 +38,16 @@ public class GiftRestController {
 
     public static final String REST_GIFT_URL = "/api/gifts";
 
+    /**
+     * Максимальное количество идентификаторов в одной массовой операции
+     */
+    public static final int MAX_BULK_IDS = 1000;
+
+    /**
+     * Максимальное количество подарков в ответе поиска похожих
+     */
+    public static final int MAX_SIMILAR = 100;
+
     private static final Logger log = LoggerFactory.getLogger(GiftRestController.class);
 
     private final GiftService giftService;
@@ -76,16 +94,44 @@ public class GiftRestController {
         }
     }
 
+    /**
+     * Ищет подарки с похожим названием
+     *
+     * @param title название
+     * @param limit максимальное количество подарков
+     * @return похожие подарки в формате JSON, начиная с самых похожих. 200 OK.
+     * 400 Bad Request если название пустое или {@code limit} вне диапазона
+     */
+    @GetMapping("/similar")
+    public ResponseEntity<List<SimilarGift>> findSimilar(@RequestParam String title,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        if (title.isBlank() || limit < 1 || limit > MAX_SIMILAR) {
+            log.error("Find similar gifts error: invalid title '{}' or limit {}", title, limit);
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Find gifts similar to '{}'", title);
+        return ResponseEntity.ok().body(giftService.findSimilar(title, limit));
+    }
+
     /**
      * Создает новый подарок
      *
-     * @param gift данные подарка в формате JSON
-     * @return созданный подарок в формате JSON. 201 Created. 400 Bad Request при ошибке валидации
+     * @param gift  данные подарка в формате JSON
+     * @param force создать, даже если есть подарки с похожим названием
+     * @return созданный подарок в формате JSON. 201 Created. 400 Bad Request при ошибке валидации.
+     * 409 Conflict со списком похожих подарков, если они есть и {@code force} не указан
      */
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Gift> create(@RequestBody @Valid Gift gift) {
+    public ResponseEntity<?> create(@RequestBody @Valid Gift gift, @RequestParam(defaultValue = "false") boolean force) {
         log.info("Create gift {}", gift);
-        Gift saved = giftService.save(gift);
+        Gift saved;
+        try {
+            saved = giftService.save(gift, force);
+        } catch (DuplicateGiftException exception) {
+            log.warn("Create gift error: {}", exception.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new DuplicateGifts(exception.getMessage(), exception.getSimilar()));
+        }
         URI uri = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path(REST_GIFT_URL + "/{id}")
                 .buildAndExpand(saved.getId()).toUri();
@@ -128,4 +174,63 @@ public class GiftRestController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * Перемещает подарок в пользовательском порядке внутри его важности
+     *
+     * @param id   идентификатор подарка
+     * @param move новое место подарка в формате JSON
+     * @return перемещенный подарок в формате JSON. 200 OK. 400 Bad Request если подарки разной важности.
+     * 404 Not Found если подарок не найден
+     */
+    @PostMapping(value = "/{id}/move", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Gift> move(@PathVariable long id, @RequestBody GiftMove move) {
+        try {
+            log.info("Move gift with id {} after {}", id, move.after());
+            Gift moved = giftService.move(id, move.after());
+            return ResponseEntity.ok().body(moved);
+        } catch (GiftNotFoundException exception) {
+            log.error("Move gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException exception) {
+            log.error("Move gift with id {} error: {}", id, exception.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Удаляет все подарки указанной важности одним запросом
+     *
+     * @param importance важность удаляемых подарков
+     * @param dryRun     только подсчитать подарки, которые будут удалены
+     * @return количество удаленных подарков в формате JSON. 200 OK
+     */
+    @DeleteMapping
+    public ResponseEntity<BulkOperationResult> deleteByImportance(@RequestParam Importance importance,
+                                                                  @RequestParam(defaultValue = "false") boolean dryRun) {
+        log.info("Bulk delete gifts with importance {}", importance);
+        long affected = giftService.deleteByImportance(importance, dryRun);
+        return ResponseEntity.ok().body(new BulkOperationResult(affected, dryRun));
+    }
+
+    /**
+     * Меняет важность подарков с указанными идентификаторами одним запросом
+     *
+     * @param ids    идентификаторы подарков
+     * @param change новая важность в формате JSON
+     * @param dryRun только подсчитать подарки, которые будут изменены
+     * @return количество измененных подарков в формате JSON. 200 OK. 400 Bad Request при ошибке валидации
+     */
+    @PatchMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkOperationResult> updateImportance(@RequestParam List<Long> ids,
+                                                                @RequestBody @Valid ImportanceChange change,
+                                                                @RequestParam(defaultValue = "false") boolean dryRun) {
+        if (ids.isEmpty() || ids.size() > MAX_BULK_IDS) {
+            log.error("Bulk update importance error: {} ids given, expected from 1 to {}", ids.size(), MAX_BULK_IDS);
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Bulk update importance to {} for gifts {}", change.importance(), ids);
+        long affected = giftService.updateImportance(ids, change.importance(), dryRun);
+        return ResponseEntity.ok().body(new BulkOperationResult(affected, dryRun));
+    }
 }
@@ -4,16 +4,21 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.berdennikov.wishlist.exception.DuplicateGiftException;
 import ru.berdennikov.wishlist.exception.GiftNotFoundException;
 import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftPosition;
 import ru.berdennikov.wishlist.model.Importance;
 import ru.berdennikov.wishlist.service.GiftService;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Контроллер для работы с подарками через пользовательский интерфейс
@@ -28,6 +33,19 @@ public class GiftWebController {
     public static final String GIFT_NOT_FOUND_FORM = "giftNotFound";
     public static final String WISHLIST_VIEW = "wishlist";
     public static final String WISHLIST_REDIRECT = "redirect:/gifts";
+    public static final String WISHLIST_ROWS_FRAGMENT = "wishlist :: rows";
+    public static final String GIFT_ROW_FRAGMENT = "wishlist :: row";
+    public static final String GIFT_FORM_FRAGMENT = "giftForm :: form";
+
+    /**
+     * Заголовок запросов со страницы, которым нужен фрагмент страницы вместо страницы целиком
+     */
+    public static final String FRAGMENT_HEADER = "X-Fragment";
+
+    /**
+     * Количество подарков на странице списка пожеланий
+     */
+    public static final int PAGE_SIZE = 50;
 
     private static final Logger log = LoggerFactory.getLogger(GiftWebController.class);
 
@@ -39,73 +57,109 @@ public class GiftWebController {
     }
 
     /**
-     * Отображает все подарки из списка пожеланий
+     * Отображает первую страницу списка пожеланий или, для запроса фрагмента, строки следующей страницы.
+     * Последняя строка страницы ссылается на следующую страницу, которая подгружается при прокрутке
      *
-     * @param model модель для передачи данных в представление
-     * @return список пожеланий
+     * @param importance      важность подарков или {@code null} для всех подарков
+     * @param afterImportance важность последнего подарка предыдущей страницы
+     * @param afterKey        ключ порядка последнего подарка предыдущей страницы
+     * @param afterId         идентификатор последнего подарка предыдущей страницы
+     * @param fragment        запрос фрагмента страницы
+     * @param model           модель для передачи данных в представление
+     * @return список пожеланий или его строки
      */
     @GetMapping
-    public String showAll(@RequestParam(required = false) Importance importance, Model model) {
-        List<Gift> gifts;
-        if (importance != null) {
-            log.info("Get gifts filtered by importance {}", importance.name());
-            gifts = giftService.getByImportance(importance);
-            model.addAttribute("selectedImportance", importance);
-        } else {
-            log.info("Get all gifts");
-            gifts = giftService.getAll();
-        }
+    public String showAll(@RequestParam(required = false) Importance importance,
+                          @RequestParam(required = false) Importance afterImportance,
+                          @RequestParam(required = false) String afterKey,
+                          @RequestParam(required = false) Long afterId,
+                          @RequestHeader(name = FRAGMENT_HEADER, defaultValue = "false") boolean fragment,
+                          Model model) {
+        GiftPosition after = afterImportance != null && afterKey != null && afterId != null
+                ? new GiftPosition(afterImportance, afterKey, afterId)
+                : null;
+        log.info("Get gifts page with importance {} after {}", importance, after);
+        List<Gift> gifts = giftService.getPage(importance, after, PAGE_SIZE);
         model.addAttribute("gifts", gifts);
-        return WISHLIST_VIEW;
+        model.addAttribute("selectedImportance", importance);
+        if (gifts.size() == PAGE_SIZE) {
+            model.addAttribute("nextPage", nextPage(importance, gifts.get(gifts.size() - 1)));
+        }
+        return fragment ? WISHLIST_ROWS_FRAGMENT : WISHLIST_VIEW;
     }
 
     /**
      * Возвращает форму создания подарка
      *
-     * @param model модель для передачи данных в представление
+     * @param fragment запрос только формы, без страницы
+     * @param model    модель для передачи данных в представление
      * @return форма создания/редактирования
      */
     @GetMapping("/create")
-    public String showCrete(Model model) {
+    public String showCrete(@RequestHeader(name = FRAGMENT_HEADER, defaultValue = "false") boolean fragment,
+                            Model model) {
         log.info("Show gift create form");
         model.addAttribute("gift", new Gift());
         model.addAttribute("importanceList", Importance.values());
-        return GIFT_FORM;
+        return fragment ? GIFT_FORM_FRAGMENT : GIFT_FORM;
     }
 
     /**
      * Возвращает форму редактирования
      *
-     * @param id    идентификатор подарка
-     * @param model модель для передачи данных в представление
+     * @param id       идентификатор подарка
+     * @param fragment запрос только формы, без страницы
+     * @param model    модель для передачи данных в представление
      * @return форма редактирования
      */
     @GetMapping("/edit/{id}")
-    public String showEdit(@PathVariable long id, Model model) {
+    public String showEdit(@PathVariable long id,
+                           @RequestHeader(name = FRAGMENT_HEADER, defaultValue = "false") boolean fragment,
+                           Model model) {
         log.info("Show gift edit form with id {}", id);
         model.addAttribute("gift", giftService.get(id));
-        return GIFT_FORM;
+        return fragment ? GIFT_FORM_FRAGMENT : GIFT_FORM;
     }
 
     /**
-     * Создает новый подарок или обновляет уже существующий
+     * Создает новый подарок или обновляет уже существующий.
+     * Если есть подарки с похожим названием, форма показывается снова со списком похожих подарков,
+     * и повторная отправка формы создает подарок
      *
      * @param gift          подарок
      * @param bindingResult валидация
-     * @return перенаправляет на список пожеланий
+     * @param force         создать, даже если есть подарки с похожим названием
+     * @param fragment      запрос фрагмента: вместо перенаправления возвращается строка подарка
+     * @param model         модель для передачи данных в представление
+     * @return перенаправляет на список пожеланий, для запроса фрагмента - строка сохраненного подарка
      */
     @PostMapping("/createOrUpdate")
-    public String createOrUpdate(@ModelAttribute @Valid Gift gift, BindingResult bindingResult) {
+    public String createOrUpdate(@ModelAttribute @Valid Gift gift, BindingResult bindingResult,
+                                 @RequestParam(defaultValue = "false") boolean force,
+                                 @RequestHeader(name = FRAGMENT_HEADER, defaultValue = "false") boolean fragment,
+                                 Model model) {
+        String form = fragment ? GIFT_FORM_FRAGMENT : GIFT_FORM;
         if (bindingResult.hasErrors()) {
             log.warn("Creating/Updating gift validation error: {} ", bindingResult.getAllErrors());
-            return GIFT_FORM;
+            return form;
         }
+        Gift saved;
         if (gift.getId() == null) {
             log.info("Creating gift {}", gift);
-            giftService.save(gift);
+            try {
+                saved = giftService.save(gift, force);
+            } catch (DuplicateGiftException exception) {
+                log.info("Creating gift warning: {}", exception.getMessage());
+                model.addAttribute("similarGifts", exception.getSimilar());
+                return form;
+            }
         } else {
             log.info("Updating gift {}", gift);
-            giftService.update(gift);
+            saved = giftService.update(gift);
+        }
+        if (fragment) {
+            model.addAttribute("gift", saved);
+            return GIFT_ROW_FRAGMENT;
         }
         return WISHLIST_REDIRECT;
     }
@@ -116,13 +170,34 @@ public class GiftWebController {
      * @param id идентификатор подарка
      * @return перенаправляет на список пожеланий
      */
-    @GetMapping("/delete/{id}")
+    @PostMapping("/delete/{id}")
     public String delete(@PathVariable Long id) {
         log.info("Delete gift with id {}", id);
         giftService.delete(id);
         return WISHLIST_REDIRECT;
     }
 
+    /**
+     * Удаляет подарок по идентификатору без перерисовки списка, строку убирает страница
+     *
+     * @param id идентификатор подарка
+     */
+    @PostMapping(value = "/delete/{id}", headers = FRAGMENT_HEADER + "=true")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteRow(@PathVariable Long id) {
+        log.info("Delete gift row with id {}", id);
+        giftService.delete(id);
+    }
+
+    private static String nextPage(Importance importance, Gift last) {
+        return UriComponentsBuilder.fromPath(GIFT_WEB_URL)
+                .queryParamIfPresent("importance", Optional.ofNullable(importance))
+                .queryParam("afterImportance", last.getImportance())
+                .queryParam("afterKey", last.getSortKey())
+                .queryParam("afterId", last.getId())
+                .toUriString();
+    }
+
     @ExceptionHandler(GiftNotFoundException.class)
     public String handleNotFound(GiftNotFoundException ex, Model model) {
         log.info("Error: {}", ex.getMessage());
@@ -0,0 +1,128 @@
+package ru.berdennikov.wishlist.web.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.berdennikov.wishlist.service.image.GiftImageService;
+import ru.berdennikov.wishlist.service.image.ImageContent;
+import ru.berdennikov.wishlist.service.image.ImageProperties;
+import ru.berdennikov.wishlist.web.image.ByteRange;
+import ru.berdennikov.wishlist.web.image.FileRegionWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+
+/**
+ * Отдача файлов изображений по хешу содержимого.
+ * <p>
+ * Содержимое по адресу никогда не меняется, поэтому ответы кешируются клиентами надолго ({@code immutable}),
+ * ETag строгий, поддерживаются условные запросы и запросы диапазона байт.
+ * Доступно только при хранении подарков в базе данных
+ */
+@RestController
+@RequestMapping(value = ImageContentController.IMAGE_URL)
+@ConditionalOnProperty(prefix = "wishlist.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class ImageContentController {
+
+    public static final String IMAGE_URL = "/api/images";
+
+    private static final Logger log = LoggerFactory.getLogger(ImageContentController.class);
+
+    private final GiftImageService imageService;
+    private final String cacheControl;
+
+    @Autowired
+    public ImageContentController(GiftImageService imageService, ImageProperties properties) {
+        this.imageService = imageService;
+        this.cacheControl = CacheControl.maxAge(properties.cacheMaxAge()).cachePublic().immutable().getHeaderValue();
+    }
+
+    /**
+     * Возвращает изображение
+     *
+     * @param hash SHA-256 содержимого
+     * @return изображение. 200 OK, 206 Partial Content для запроса диапазона, 304 Not Modified если ETag совпал,
+     * 416 если диапазон за пределами файла. 404 если изображение не найдено
+     */
+    @GetMapping("/{hash}")
+    public void get(@PathVariable String hash, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        log.debug("Get image {}", hash);
+        write(imageService.getContent(hash), request, response);
+    }
+
+    /**
+     * Возвращает миниатюру изображения в формате JPEG
+     *
+     * @param hash SHA-256 содержимого исходного изображения
+     * @return миниатюра. 404 если изображение не найдено или миниатюра еще строится
+     */
+    @GetMapping("/{hash}/thumbnail")
+    public void getThumbnail(@PathVariable String hash, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        log.debug("Get thumbnail of image {}", hash);
+        write(imageService.getThumbnail(hash), request, response);
+    }
+
+    private void write(Optional<ImageContent> found, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (found.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ImageContent content = found.get();
+        response.setHeader(HttpHeaders.ETAG, content.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), content.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = Files.size(content.path());
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        String rangeHeader = ifRange == null || ifRange.equals(content.etag()) ? request.getHeader(HttpHeaders.RANGE) : null;
+        Optional<ByteRange> range = ByteRange.parse(rangeHeader, length);
+        if (range.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        ByteRange bytes = range.get();
+        if (bytes.isPartial(length)) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + bytes.start() + "-" + bytes.end() + "/" + length);
+        }
+        response.setContentType(content.contentType());
+        response.setContentLengthLong(bytes.length());
+        if (!"HEAD".equals(request.getMethod())) {
+            FileRegionWriter.write(request, response, content.path(), bytes);
+        }
+    }
+
+    /**
+     * Сравнение для {@code If-None-Match}: слабое, по списку значений или {@code *}
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || (value.startsWith("W/") ? value.substring(2) : value).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.berdennikov.wishlist.web.dto;
+
+/**
+ * Результат массовой операции над подарками
+ *
+ * @param affected количество затронутых подарков
+ * @param dryRun   {@code true}, если изменения не выполнялись, а только подсчитаны
+ */
+public record BulkOperationResult(long affected, boolean dryRun) {
+}
@@ -0,0 +1,14 @@
+package ru.berdennikov.wishlist.web.dto;
+
+import ru.berdennikov.wishlist.service.similar.SimilarGift;
+
+import java.util.List;
+
+/**
+ * Ответ на создание подарка, похожего на существующие
+ *
+ * @param message описание ошибки
+ * @param similar подарки с похожим названием, начиная с самых похожих
+ */
+public record DuplicateGifts(String message, List<SimilarGift> similar) {
+}
@@ -0,0 +1,9 @@
+package ru.berdennikov.wishlist.web.dto;
+
+/**
+ * Новое место подарка в пользовательском порядке
+ *
+ * @param after идентификатор подарка, после которого поставить перемещаемый, {@code null} - поставить первым
+ */
+public record GiftMove(Long after) {
+}
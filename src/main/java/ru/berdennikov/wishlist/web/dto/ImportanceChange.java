@@ -0,0 +1,12 @@
+package ru.berdennikov.wishlist.web.dto;
+
+import jakarta.validation.constraints.NotNull;
+import ru.berdennikov.wishlist.model.Importance;
+
+/**
+ * Новая важность для массового изменения подарков
+ *
+ * @param importance новая важность
+ */
+public record ImportanceChange(@NotNull Importance importance) {
+}
@@ -0,0 +1,171 @@
+package ru.berdennikov.wishlist.web.i18n;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Неизменяемый снимок файлов сообщений: для каждого файла таблица сообщений с заранее разобранными шаблонами.
+ * <p>
+ * Таблица для языка собирается один раз из файлов от самого точного к общему, как у {@link java.util.ResourceBundle}
+ * без перехода к системному языку, и дальше сообщение ищется одним обращением к хеш-таблице
+ */
+final class MessageCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageCatalog.class);
+
+    private static final String EXTENSION = ".properties";
+    private static final int MAX_CACHED_LOCALES = 64;
+
+    private final Map<String, Map<String, Message>> bundles;
+    private final List<Path> files;
+    private final Instant loadedAt;
+    private final Map<Locale, Map<String, Message>> tables = new ConcurrentHashMap<>();
+
+    private MessageCatalog(Map<String, Map<String, Message>> bundles, List<Path> files) {
+        this.bundles = bundles;
+        this.files = files;
+        this.loadedAt = Instant.now();
+    }
+
+    /**
+     * Читает все файлы {@code <basename>_<язык>.properties} и {@code <basename>.properties} в UTF-8
+     *
+     * @param resolver поиск файлов
+     * @param basename расположение файлов без суффикса языка
+     */
+    static MessageCatalog load(ResourcePatternResolver resolver, String basename) throws IOException {
+        String prefix = StringUtils.getFilename(basename);
+        Map<String, Map<String, Message>> bundles = new LinkedHashMap<>();
+        List<Path> files = new ArrayList<>();
+        for (Resource resource : resolver.getResources(basename + "*" + EXTENSION)) {
+            String filename = resource.getFilename();
+            if (prefix == null || filename == null || !filename.startsWith(prefix)) {
+                continue;
+            }
+            String suffix = filename.substring(prefix.length(), filename.length() - EXTENSION.length());
+            if (!suffix.isEmpty() && !suffix.startsWith("_") || bundles.containsKey(suffix)) {
+                continue;
+            }
+            Locale locale = suffix.isEmpty() ? Locale.ROOT : StringUtils.parseLocale(suffix.substring(1));
+            bundles.put(suffix, compile(resource, locale));
+            if (resource.isFile()) {
+                files.add(resource.getFile().toPath());
+            }
+        }
+        if (bundles.isEmpty()) {
+            log.warn("No message files found at {}", basename);
+        }
+        return new MessageCatalog(Map.copyOf(bundles), List.copyOf(files));
+    }
+
+    /**
+     * @return сообщение или {@code null}, если его нет ни в одном файле для языка
+     */
+    Message find(String code, Locale locale) {
+        Map<String, Message> table = tables.get(locale);
+        if (table == null) {
+            table = merge(locale);
+            // язык берется из запроса, поэтому кеш ограничен, чтобы произвольные заголовки не раздували его
+            if (tables.size() < MAX_CACHED_LOCALES) {
+                tables.putIfAbsent(locale, table);
+            }
+        }
+        return table.get(code);
+    }
+
+    /**
+     * @return количество сообщений по суффиксам файлов
+     */
+    Map<String, Integer> sizes() {
+        Map<String, Integer> sizes = new HashMap<>();
+        bundles.forEach((suffix, messages) -> sizes.put(suffix, messages.size()));
+        return sizes;
+    }
+
+    /**
+     * @return файлы сообщений в файловой системе, за изменениями которых можно следить
+     */
+    List<Path> files() {
+        return files;
+    }
+
+    Instant loadedAt() {
+        return loadedAt;
+    }
+
+    private Map<String, Message> merge(Locale locale) {
+        Map<String, Message> table = new HashMap<>();
+        for (String suffix : suffixes(locale)) {
+            Map<String, Message> bundle = bundles.get(suffix);
+            if (bundle != null) {
+                bundle.forEach(table::putIfAbsent);
+            }
+        }
+        return Map.copyOf(table);
+    }
+
+    private static List<String> suffixes(Locale locale) {
+        List<String> suffixes = new ArrayList<>(4);
+        String language = locale.getLanguage();
+        String country = locale.getCountry();
+        String variant = locale.getVariant();
+        if (!variant.isEmpty()) {
+            suffixes.add("_" + language + "_" + country + "_" + variant);
+        }
+        if (!country.isEmpty()) {
+            suffixes.add("_" + language + "_" + country);
+        }
+        if (!language.isEmpty()) {
+            suffixes.add("_" + language);
+        }
+        suffixes.add("");
+        return suffixes;
+    }
+
+    private static Map<String, Message> compile(Resource resource, Locale locale) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, Message> messages = new HashMap<>();
+        for (String code : properties.stringPropertyNames()) {
+            String text = properties.getProperty(code);
+            MessageFormat format = null;
+            try {
+                format = new MessageFormat(text, locale);
+            } catch (IllegalArgumentException e) {
+                log.warn("Message {} in {} is not a valid MessageFormat pattern: {}",
+                        code, resource.getFilename(), e.getMessage());
+            }
+            messages.put(code, new Message(text, format));
+        }
+        return Map.copyOf(messages);
+    }
+
+    /**
+     * @param text   текст сообщения, используется без аргументов
+     * @param format разобранный шаблон, общий для всех потоков и поэтому только для клонирования,
+     *               {@code null} если текст не является шаблоном
+     */
+    record Message(String text, MessageFormat format) {
+    }
+}
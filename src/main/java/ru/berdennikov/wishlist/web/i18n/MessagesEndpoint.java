@@ -0,0 +1,43 @@
+package ru.berdennikov.wishlist.web.i18n;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Сообщения интерфейса: {@code GET /actuator/messages} - когда и сколько сообщений загружено,
+ * {@code POST /actuator/messages} перечитывает файлы сообщений. Доступ не проверяется, поэтому endpoint
+ * открыт только на порту {@code management.server.port}, недоступном снаружи
+ */
+@Endpoint(id = "messages")
+public class MessagesEndpoint {
+
+    private final PrecompiledMessageSource messageSource;
+
+    public MessagesEndpoint(PrecompiledMessageSource messageSource) {
+        this.messageSource = messageSource;
+    }
+
+    @ReadOperation
+    public Report report() {
+        MessageCatalog catalog = messageSource.catalog();
+        return new Report(catalog.loadedAt(), catalog.sizes(), messageSource.isWatching());
+    }
+
+    @WriteOperation
+    public Report reload() {
+        messageSource.reload();
+        return report();
+    }
+
+    /**
+     * @param loadedAt время загрузки сообщений
+     * @param messages количество сообщений по суффиксам файлов, пустой суффикс - файл без языка
+     * @param watching перечитываются ли сообщения при изменении файлов
+     */
+    public record Report(Instant loadedAt, Map<String, Integer> messages, boolean watching) {
+    }
+}
@@ -0,0 +1,19 @@
+package ru.berdennikov.wishlist.web.i18n;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки сообщений интерфейса
+ *
+ * @param basename   расположение файлов сообщений без суффикса языка, например {@code file:/etc/wishlist/messages/app}
+ * @param watch      перечитывать ли сообщения при изменении файлов, если они лежат в файловой системе
+ * @param watchDelay сколько ждать остальных изменений после первого, прежде чем перечитать сообщения
+ */
+@ConfigurationProperties(prefix = "wishlist.messages")
+public record MessagesProperties(@DefaultValue("classpath:messages/app") String basename,
+                                 @DefaultValue("true") boolean watch,
+                                 @DefaultValue("200ms") Duration watchDelay) {
+}
@@ -0,0 +1,170 @@
+package ru.berdennikov.wishlist.web.i18n;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.AbstractMessageSource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Источник сообщений, который читает файлы сообщений один раз в неизменяемый {@link MessageCatalog}.
+ * <p>
+ * Чтение сообщения - обращение к хеш-таблице через volatile ссылку, без блокировок и проверок файлов.
+ * Шаблоны с аргументами разобраны заранее, для форматирования берется копия шаблона, поэтому общий
+ * {@link MessageFormat} не блокируется. Сообщения перечитываются целиком и подменяются одной записью ссылки:
+ * по событию {@link WatchService}, если файлы лежат в файловой системе, или вызовом {@link #reload()}.
+ * Если файлы не читаются, остаются прежние сообщения
+ */
+public class PrecompiledMessageSource extends AbstractMessageSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PrecompiledMessageSource.class);
+
+    private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    private final String basename;
+    private final Duration watchDelay;
+    private final WatchService watchService;
+    private volatile MessageCatalog catalog;
+
+    public PrecompiledMessageSource(MessagesProperties properties) {
+        this.basename = properties.basename();
+        this.watchDelay = properties.watchDelay();
+        this.catalog = load();
+        this.watchService = properties.watch() ? watch(catalog) : null;
+    }
+
+    /**
+     * Перечитывает файлы сообщений
+     *
+     * @throws UncheckedIOException если файлы не читаются, прежние сообщения при этом остаются
+     */
+    public void reload() {
+        MessageCatalog reloaded = load();
+        catalog = reloaded;
+        log.info("Messages reloaded from {}: {}", basename, reloaded.sizes());
+    }
+
+    MessageCatalog catalog() {
+        return catalog;
+    }
+
+    /**
+     * @return следит ли источник за изменениями файлов
+     */
+    public boolean isWatching() {
+        return watchService != null;
+    }
+
+    @Override
+    protected String resolveCodeWithoutArguments(String code, Locale locale) {
+        MessageCatalog.Message message = catalog.find(code, locale);
+        return message != null ? message.text() : null;
+    }
+
+    @Override
+    protected MessageFormat resolveCode(String code, Locale locale) {
+        MessageCatalog.Message message = catalog.find(code, locale);
+        return message != null && message.format() != null ? (MessageFormat) message.format().clone() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private MessageCatalog load() {
+        try {
+            return MessageCatalog.load(resolver, basename);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load messages from " + basename, e);
+        }
+    }
+
+    /**
+     * Запускает поток, который перечитывает сообщения при изменении файлов в каталогах файлов сообщений
+     *
+     * @return служба наблюдения или {@code null}, если файлы сообщений не лежат в файловой системе
+     */
+    private WatchService watch(MessageCatalog catalog) {
+        Set<Path> directories = new LinkedHashSet<>();
+        catalog.files().forEach(file -> directories.add(file.getParent()));
+        if (directories.isEmpty()) {
+            log.info("Messages at {} are not files, changes are applied only by reload", basename);
+            return null;
+        }
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories) {
+                directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to watch message files at {}, changes are applied only by reload", basename, e);
+            return null;
+        }
+        Thread thread = new Thread(() -> watchLoop(service), "messages-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching message files in {}", directories);
+        return service;
+    }
+
+    private void watchLoop(WatchService service) {
+        String prefix = StringUtils.getFilename(basename);
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                // изменение файла обычно приходит несколькими событиями подряд, перечитывается один раз
+                while (key != null) {
+                    changed |= isMessageFile(key, prefix);
+                    key.reset();
+                    key = service.poll(watchDelay.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                if (changed) {
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        log.error("Failed to reload messages, previous messages are kept", e);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Message files watcher closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isMessageFile(WatchKey key, String prefix) {
+        boolean matches = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                matches = true;
+            } else if (event.context() instanceof Path path) {
+                String filename = path.getFileName().toString();
+                matches |= prefix != null && filename.startsWith(prefix) && filename.endsWith(".properties");
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,317 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Обрабатывает заголовок {@code Idempotency-Key} на изменяющих запросах.
+ * <p>
+ * Первый запрос с ключом выполняется, его ответ сохраняется в {@link IdempotencyStore}.
+ * Повторные запросы с тем же ключом получают сохраненный ответ без повторной записи в базу.
+ * Запрос сравнивается с исходным по параметрам строки запроса и телу: тот же ключ с другими
+ * параметрами (например, {@code dryRun} или {@code force}) - это другой запрос, он отклоняется.
+ * Одновременные запросы с одним ключом дожидаются завершения первого и получают его ответ: в пределах экземпляра
+ * приложения - через общий {@link CompletableFuture}, между экземплярами - через резерв ключа в хранилище,
+ * который сделан до выполнения запроса. Не дождавшиеся ответа за {@code waitTimeout} получают 409 Conflict.
+ * Ответы с ошибкой сервера (5xx) не сохраняются, такой запрос можно повторить.
+ * Тело запроса читается в память для отпечатка, поэтому его размер ограничен {@code maxBodySize}.
+ * Загрузки изображений не обрабатываются: для сравнения запросов тело пришлось бы целиком прочитать в память
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    private static final Set<String> METHODS = Set.of("POST", "PUT", "PATCH");
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long MIN_POLL_INTERVAL_MILLIS = 10;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 250;
+
+    private final IdempotencyStore store;
+    private final Duration waitTimeout;
+    private final int maxBodySize;
+    private final Clock clock;
+    private final ConcurrentMap<String, CompletableFuture<IdempotentResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyFilter(IdempotencyStore store, Duration waitTimeout, int maxBodySize, Clock clock) {
+        this.store = store;
+        this.waitTimeout = waitTimeout;
+        this.maxBodySize = maxBodySize;
+        this.clock = clock;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IDEMPOTENCY_KEY_HEADER) == null || !METHODS.contains(request.getMethod())
+                || (request.getContentType() != null && request.getContentType().startsWith("image/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    "Idempotency-Key must be from 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        // тело читается в память целиком, поэтому его размер ограничен до чтения
+        byte[] body = request.getContentLengthLong() > maxBodySize ? null
+                : request.getInputStream().readNBytes(maxBodySize + 1);
+        if (body == null || body.length > maxBodySize) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                    "Request body with Idempotency-Key must not exceed " + maxBodySize + " bytes");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body);
+        String key = request.getMethod() + " " + request.getRequestURI() + " " + idempotencyKey;
+        String fingerprint = fingerprint(request.getQueryString(), body);
+
+        while (true) {
+            Optional<IdempotentResponse> stored = store.find(key);
+            if (stored.isPresent()) {
+                replay(stored.get(), fingerprint, response);
+                return;
+            }
+
+            CompletableFuture<IdempotentResponse> execution = new CompletableFuture<>();
+            CompletableFuture<IdempotentResponse> running = inFlight.putIfAbsent(key, execution);
+            if (running == null) {
+                lead(key, fingerprint, cachedRequest, response, filterChain, execution);
+                return;
+            }
+
+            log.debug("Waiting for in-flight request with idempotency key {}", idempotencyKey);
+            IdempotentResponse result;
+            try {
+                result = running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                sendInProgress(response);
+                return;
+            }
+            if (result != null) {
+                replay(result, fingerprint, response);
+                return;
+            }
+            // первый запрос завершился ошибкой и ответ не сохранен, выполняем запрос заново
+        }
+    }
+
+    /**
+     * Обрабатывает запрос, первым пришедший с ключом в этот экземпляр приложения: резервирует ключ в хранилище
+     * и выполняет запрос. Если ключ зарезервирован другим экземпляром, ждет его ответа в хранилище.
+     * Результат передается запросам с тем же ключом, ожидающим в этом экземпляре
+     */
+    private void lead(String key, String fingerprint, HttpServletRequest request, HttpServletResponse response,
+                      FilterChain filterChain, CompletableFuture<IdempotentResponse> execution)
+            throws ServletException, IOException {
+        IdempotentResponse result = null;
+        boolean timedOut = false;
+        try {
+            long deadline = System.nanoTime() + waitTimeout.toNanos();
+            long pause = MIN_POLL_INTERVAL_MILLIS;
+            while (true) {
+                // запрос с тем же ключом мог завершиться после проверки хранилища
+                Optional<IdempotentResponse> completed = store.find(key);
+                if (completed.isPresent()) {
+                    result = completed.get();
+                    replay(result, fingerprint, response);
+                    return;
+                }
+                if (store.reserve(key, fingerprint)) {
+                    result = execute(key, fingerprint, request, response, filterChain);
+                    return;
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    timedOut = true;
+                    sendInProgress(response);
+                    return;
+                }
+                log.debug("Waiting for request with idempotency key {} on another instance", key);
+                Thread.sleep(pause);
+                pause = Math.min(pause * 2, MAX_POLL_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timedOut = true;
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+        } finally {
+            inFlight.remove(key, execution);
+            if (timedOut) {
+                execution.completeExceptionally(new TimeoutException());
+            } else {
+                execution.complete(result);
+            }
+        }
+    }
+
+    /**
+     * Выполняет запрос по зарезервированному ключу. Ответ без ошибки сервера сохраняется, иначе резерв снимается
+     *
+     * @return сохраненный ответ или {@code null}
+     */
+    private IdempotentResponse execute(String key, String fingerprint, HttpServletRequest request,
+                                       HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        IdempotentResponse result = null;
+        try {
+            filterChain.doFilter(request, cachingResponse);
+            if (cachingResponse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                IdempotentResponse stored = new IdempotentResponse(fingerprint,
+                        cachingResponse.getStatus(),
+                        cachingResponse.getContentType(),
+                        cachingResponse.getHeader(HttpHeaders.LOCATION),
+                        cachingResponse.getContentAsByteArray(),
+                        clock.instant());
+                store.save(key, stored);
+                result = stored;
+            }
+        } finally {
+            if (result == null) {
+                store.release(key);
+            }
+            cachingResponse.copyBodyToResponse();
+        }
+        return result;
+    }
+
+    private static void sendInProgress(HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.CONFLICT.value(), "Request with the same Idempotency-Key is still in progress");
+    }
+
+    private void replay(IdempotentResponse stored, String fingerprint, HttpServletResponse response) throws IOException {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                    "Idempotency-Key has already been used with a different request");
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    /**
+     * Отпечаток запроса: параметры строки запроса без учета их порядка и тело
+     */
+    static String fingerprint(String queryString, byte[] body) {
+        String query = queryString == null ? "" : Arrays.stream(queryString.split("&"))
+                .filter(parameter -> !parameter.isEmpty())
+                .sorted()
+                .collect(Collectors.joining("&"));
+        byte[] queryBytes = query.getBytes(StandardCharsets.UTF_8);
+        byte[] input = new byte[queryBytes.length + 1 + body.length];
+        System.arraycopy(queryBytes, 0, input, 0, queryBytes.length);
+        // разделитель не встречается в строке запроса, поэтому граница между параметрами и телом однозначна
+        input[queryBytes.length] = '\n';
+        System.arraycopy(body, 0, input, queryBytes.length + 1, body.length);
+        return DigestUtils.md5DigestAsHex(input);
+    }
+
+    /**
+     * Запрос с прочитанным заранее телом: тело нужно для отпечатка до передачи запроса дальше по цепочке
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * Тело уже в памяти и читается без ожидания, поэтому слушатель вызывается сразу
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Настройки обработки заголовка {@code Idempotency-Key}
+ *
+ * @param enabled     включена ли обработка ключей идемпотентности
+ * @param store       хранилище сохраненных ответов
+ * @param ttl         время хранения ответа
+ * @param maxEntries  максимальное количество ответов в памяти
+ * @param waitTimeout сколько ждать завершения выполняющегося запроса с тем же ключом
+ * @param lockTimeout через сколько незавершенный резерв ключа считается брошенным
+ * @param maxBodySize максимальный размер тела запроса с ключом идемпотентности
+ */
+@ConfigurationProperties(prefix = "wishlist.idempotency")
+public record IdempotencyProperties(@DefaultValue("true") boolean enabled,
+                                    @DefaultValue("memory") StoreType store,
+                                    @DefaultValue("24h") Duration ttl,
+                                    @DefaultValue("10000") int maxEntries,
+                                    @DefaultValue("30s") Duration waitTimeout,
+                                    @DefaultValue("5m") Duration lockTimeout,
+                                    @DefaultValue("1MB") DataSize maxBodySize) {
+
+    /**
+     * Тип хранилища сохраненных ответов
+     */
+    public enum StoreType {
+        /**
+         * В памяти процесса. Подходит для одного экземпляра приложения
+         */
+        MEMORY,
+        /**
+         * Таблица idempotency_key в базе данных. Общая для нескольких экземпляров приложения
+         */
+        JDBC
+    }
+}
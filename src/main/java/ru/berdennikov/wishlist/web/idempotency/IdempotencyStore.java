@@ -0,0 +1,51 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Хранилище ответов на запросы с ключом идемпотентности.
+ * <p>
+ * Перед выполнением запроса ключ резервируется: пока резерв не снят, другие запросы с тем же ключом
+ * (в том числе на других экземплярах приложения) не выполняются, а ждут сохраненного ответа
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Возвращает сохраненный ответ, если он есть и еще не устарел
+     *
+     * @param key ключ идемпотентности
+     * @return сохраненный ответ
+     */
+    Optional<IdempotentResponse> find(String key);
+
+    /**
+     * Резервирует ключ за выполняемым запросом. Резерв, не завершенный за время блокировки,
+     * считается брошенным (экземпляр приложения остановлен во время запроса) и может быть занят заново
+     *
+     * @param key         ключ идемпотентности
+     * @param fingerprint отпечаток запроса
+     * @return {@code true}, если ключ зарезервирован; {@code false}, если по ключу уже сохранен ответ
+     * или выполняется другой запрос
+     */
+    boolean reserve(String key, String fingerprint);
+
+    /**
+     * Сохраняет ответ и снимает резерв. Если ответ с таким ключом уже сохранен, он не перезаписывается
+     *
+     * @param key      ключ идемпотентности
+     * @param response ответ
+     */
+    void save(String key, IdempotentResponse response);
+
+    /**
+     * Снимает резерв без сохранения ответа, после чего запрос с этим ключом можно выполнить заново
+     *
+     * @param key ключ идемпотентности
+     */
+    void release(String key);
+
+    /**
+     * Удаляет устаревшие ответы и брошенные резервы
+     */
+    void evictExpired();
+}
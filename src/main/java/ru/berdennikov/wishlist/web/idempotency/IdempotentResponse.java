@@ -0,0 +1,21 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import java.time.Instant;
+
+/**
+ * Сохраненный ответ на запрос с ключом идемпотентности
+ *
+ * @param fingerprint отпечаток исходного запроса: параметры строки запроса и тело
+ * @param status      HTTP статус ответа
+ * @param contentType заголовок Content-Type ответа
+ * @param location    заголовок Location ответа
+ * @param body        тело ответа
+ * @param createdAt   время сохранения ответа
+ */
+public record IdempotentResponse(String fingerprint,
+                                 int status,
+                                 String contentType,
+                                 String location,
+                                 byte[] body,
+                                 Instant createdAt) {
+}
@@ -0,0 +1,97 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище ответов в памяти процесса.
+ * <p>
+ * Ограничено по количеству записей: при переполнении вытесняются самые старые.
+ * Записи хранятся в порядке сохранения, поэтому устаревшие всегда находятся в начале
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Clock clock;
+    private final Map<String, IdempotentResponse> entries;
+    private final Map<String, Instant> reservations = new HashMap<>();
+
+    public InMemoryIdempotencyStore(Duration ttl, Duration lockTimeout, int maxEntries, Clock clock) {
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotentResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<IdempotentResponse> find(String key) {
+        IdempotentResponse response = entries.get(key);
+        if (response != null && isExpired(response, clock.instant())) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(response);
+    }
+
+    @Override
+    public synchronized boolean reserve(String key, String fingerprint) {
+        Instant now = clock.instant();
+        if (find(key).isPresent()) {
+            return false;
+        }
+        Instant reservedAt = reservations.get(key);
+        if (reservedAt != null && !isAbandoned(reservedAt, now)) {
+            return false;
+        }
+        reservations.put(key, now);
+        return true;
+    }
+
+    @Override
+    public synchronized void save(String key, IdempotentResponse response) {
+        reservations.remove(key);
+        entries.putIfAbsent(key, response);
+    }
+
+    @Override
+    public synchronized void release(String key) {
+        reservations.remove(key);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${wishlist.idempotency.eviction-interval:PT1M}")
+    public synchronized void evictExpired() {
+        Instant now = clock.instant();
+        Iterator<IdempotentResponse> iterator = entries.values().iterator();
+        while (iterator.hasNext() && isExpired(iterator.next(), now)) {
+            iterator.remove();
+        }
+        reservations.values().removeIf(reservedAt -> isAbandoned(reservedAt, now));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean isExpired(IdempotentResponse response, Instant now) {
+        return response.createdAt().plus(ttl).isBefore(now);
+    }
+
+    private boolean isAbandoned(Instant reservedAt, Instant now) {
+        return reservedAt.plus(lockTimeout).isBefore(now);
+    }
+}
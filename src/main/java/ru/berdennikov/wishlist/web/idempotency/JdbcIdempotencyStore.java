@@ -0,0 +1,117 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Хранилище ответов в таблице idempotency_key. Используется, когда приложение запущено в нескольких экземплярах.
+ * <p>
+ * Резерв ключа - строка без статуса, вставленная до выполнения запроса. Первичный ключ таблицы гарантирует,
+ * что зарезервировать ключ сможет только один экземпляр; после выполнения строка дополняется ответом
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final String SELECT = """
+            SELECT fingerprint, status, content_type, location, body, created_at
+            FROM idempotency_key
+            WHERE idempotency_key = ? AND status IS NOT NULL AND created_at > ?""";
+
+    private static final String RESERVE = """
+            INSERT INTO idempotency_key (idempotency_key, fingerprint, created_at)
+            VALUES (?, ?, ?)""";
+
+    private static final String DELETE_EXPIRED_KEY = """
+            DELETE FROM idempotency_key
+            WHERE idempotency_key = ? AND (created_at <= ? OR (status IS NULL AND created_at <= ?))""";
+
+    private static final String COMPLETE = """
+            UPDATE idempotency_key SET status = ?, content_type = ?, location = ?, body = ?, created_at = ?
+            WHERE idempotency_key = ? AND status IS NULL""";
+
+    private static final String INSERT = """
+            INSERT INTO idempotency_key (idempotency_key, fingerprint, status, content_type, location, body, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+    private static final String RELEASE = "DELETE FROM idempotency_key WHERE idempotency_key = ? AND status IS NULL";
+
+    private static final String DELETE_EXPIRED = """
+            DELETE FROM idempotency_key
+            WHERE created_at <= ? OR (status IS NULL AND created_at <= ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Clock clock;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, Duration ttl, Duration lockTimeout, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String key) {
+        return jdbcTemplate.query(SELECT, (rs, rowNum) -> new IdempotentResponse(
+                        rs.getString("fingerprint"),
+                        rs.getInt("status"),
+                        rs.getString("content_type"),
+                        rs.getString("location"),
+                        rs.getBytes("body"),
+                        rs.getTimestamp("created_at").toInstant()),
+                key, expirationThreshold()).stream().findFirst();
+    }
+
+    @Override
+    public boolean reserve(String key, String fingerprint) {
+        // устаревший ответ или брошенный резерв не должны мешать вставке
+        jdbcTemplate.update(DELETE_EXPIRED_KEY, key, expirationThreshold(), abandonmentThreshold());
+        try {
+            jdbcTemplate.update(RESERVE, key, fingerprint, Timestamp.from(clock.instant()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void save(String key, IdempotentResponse response) {
+        int completed = jdbcTemplate.update(COMPLETE, response.status(), response.contentType(), response.location(),
+                response.body(), Timestamp.from(response.createdAt()), key);
+        if (completed > 0) {
+            return;
+        }
+        // резерв уже удален как брошенный
+        try {
+            jdbcTemplate.update(INSERT, key, response.fingerprint(), response.status(), response.contentType(),
+                    response.location(), response.body(), Timestamp.from(response.createdAt()));
+        } catch (DuplicateKeyException e) {
+            // ключ занят другим экземпляром приложения
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update(RELEASE, key);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${wishlist.idempotency.eviction-interval:PT1M}")
+    public void evictExpired() {
+        jdbcTemplate.update(DELETE_EXPIRED, expirationThreshold(), abandonmentThreshold());
+    }
+
+    private Timestamp expirationThreshold() {
+        return Timestamp.from(clock.instant().minus(ttl));
+    }
+
+    private Timestamp abandonmentThreshold() {
+        return Timestamp.from(clock.instant().minus(lockTimeout));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.berdennikov.wishlist.web.image;
+
+import java.util.Optional;
+
+/**
+ * Диапазон байт из заголовка {@code Range}, границы включительно
+ *
+ * @param start первый байт
+ * @param end   последний байт
+ */
+public record ByteRange(long start, long end) {
+
+    private static final String UNIT = "bytes=";
+
+    /**
+     * Разбирает заголовок {@code Range}. Поддерживается один диапазон: {@code bytes=0-99}, {@code bytes=100-}
+     * и {@code bytes=-100}. Заголовок с несколькими диапазонами или с ошибкой игнорируется, как разрешает RFC 9110,
+     * и отдается весь файл
+     *
+     * @param header значение заголовка, может быть {@code null}
+     * @param length размер файла
+     * @return диапазон для отдачи или пустое значение, если диапазон не пересекается с файлом (416)
+     */
+    public static Optional<ByteRange> parse(String header, long length) {
+        ByteRange full = new ByteRange(0, length - 1);
+        if (header == null || !header.startsWith(UNIT) || header.indexOf(',') >= 0) {
+            return Optional.of(full);
+        }
+        String spec = header.substring(UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return Optional.of(full);
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return Optional.of(full);
+                }
+                return suffix > 0 && length > 0
+                        ? Optional.of(new ByteRange(Math.max(0, length - suffix), length - 1))
+                        : Optional.empty();
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return Optional.of(full);
+            }
+            return start < length ? Optional.of(new ByteRange(start, Math.min(end, length - 1))) : Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.of(full);
+        }
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return {@code true}, если диапазон меньше файла и отдается ответом 206 Partial Content
+     */
+    public boolean isPartial(long fileLength) {
+        return start > 0 || end < fileLength - 1;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.berdennikov.wishlist.web.image;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Отдает часть файла в тело ответа без копирования через память приложения.
+ * <p>
+ * Если Tomcat поддерживает sendfile для этого соединения (NIO коннектор без сжатия ответа), файл передается
+ * контейнеру через атрибуты запроса, и после завершения обработки Tomcat сам отправляет его в сокет
+ * через {@link FileChannel#transferTo}. Иначе файл пишется в поток ответа тем же {@code transferTo}
+ */
+public final class FileRegionWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileRegionWriter() {
+    }
+
+    /**
+     * Пишет диапазон файла. Заголовки и статус ответа должны быть уже установлены
+     */
+    public static void write(HttpServletRequest request, HttpServletResponse response, Path file, ByteRange range)
+            throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            // конец диапазона для Tomcat не включается
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            long remaining = range.length();
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, output);
+                if (written <= 0) {
+                    throw new IOException("File " + file + " is shorter than expected");
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+}
@@ -1,8 +1,125 @@
+DROP TABLE IF EXISTS idempotency_key;
+DROP TABLE IF EXISTS gift_image;
+DROP TABLE IF EXISTS gift_archive;
 DROP TABLE IF EXISTS gift;
+DROP TABLE IF EXISTS gift_history;
+DROP SEQUENCE IF EXISTS gift_history_change_id_seq;
+DROP FUNCTION IF EXISTS gift_history_append();
+DROP FUNCTION IF EXISTS gift_history_create_partition(DATE);
 
 CREATE TABLE IF NOT EXISTS gift (
     id BIGSERIAL PRIMARY KEY,
     title VARCHAR(200) NOT NULL,
     description TEXT,
-    importance VARCHAR(50) NOT NULL
-)
\ No newline at end of file
+    importance VARCHAR(50) NOT NULL,
+    -- ключи порядка сравниваются побайтово, как в RankKeys
+    sort_key VARCHAR(255) COLLATE "C" NOT NULL,
+    deleted_at TIMESTAMP WITH TIME ZONE
+);
+
+-- индексы покрывают только неудаленные подарки, удаленные ищет только перенос в архив
+CREATE INDEX IF NOT EXISTS gift_importance_sort_key_idx ON gift (importance, sort_key, id) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS gift_deleted_at_idx ON gift (deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- поиск похожих названий оператором % из pg_trgm
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS gift_title_trgm_idx ON gift USING GIN (title gin_trgm_ops) WHERE deleted_at IS NULL;
+
+CREATE TABLE IF NOT EXISTS gift_archive (
+    id BIGINT PRIMARY KEY,
+    title VARCHAR(200) NOT NULL,
+    description TEXT,
+    importance VARCHAR(50) NOT NULL,
+    sort_key VARCHAR(255) COLLATE "C" NOT NULL,
+    deleted_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    archived_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- история изменений подарков: триггер добавляет состояние подарка после каждого изменения
+-- названия, описания, важности, порядка или удаления в той же транзакции, строки истории не изменяются.
+-- Секции по месяцам создает и удаляет приложение, BRIN индекс по времени изменения занимает единицы страниц
+-- на миллионы строк, так как строки добавляются в порядке времени
+CREATE SEQUENCE IF NOT EXISTS gift_history_change_id_seq;
+
+CREATE TABLE IF NOT EXISTS gift_history (
+    change_id BIGINT NOT NULL DEFAULT nextval('gift_history_change_id_seq'),
+    gift_id BIGINT NOT NULL,
+    changed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT clock_timestamp(),
+    -- I - создание, U - изменение, D - удаление, B - состояние на начало истории после удаления старых секций
+    operation CHAR(1) NOT NULL,
+    title VARCHAR(200) NOT NULL,
+    description TEXT,
+    importance VARCHAR(50) NOT NULL,
+    sort_key VARCHAR(255) COLLATE "C" NOT NULL
+) PARTITION BY RANGE (changed_at);
+
+-- записи попадают сюда, только если секция месяца не была создана заранее
+CREATE TABLE IF NOT EXISTS gift_history_default PARTITION OF gift_history DEFAULT;
+
+CREATE INDEX IF NOT EXISTS gift_history_changed_at_brin ON gift_history USING BRIN (changed_at);
+-- история одного подарка и последнее состояние подарка на момент времени
+CREATE INDEX IF NOT EXISTS gift_history_gift_id_idx ON gift_history (gift_id, changed_at, change_id);
+
+CREATE OR REPLACE FUNCTION gift_history_create_partition(month DATE) RETURNS VOID AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month);
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF gift_history FOR VALUES FROM (%L) TO (%L)',
+                   'gift_history_' || to_char(first_day, 'YYYY_MM'),
+                   first_day::TIMESTAMP AT TIME ZONE 'UTC',
+                   (first_day + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC');
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT gift_history_create_partition((date_trunc('month', now() AT TIME ZONE 'UTC') + make_interval(months => m))::DATE)
+FROM generate_series(0, 3) AS m;
+
+CREATE OR REPLACE FUNCTION gift_history_append() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO gift_history (gift_id, operation, title, description, importance, sort_key)
+    VALUES (NEW.id,
+            CASE WHEN TG_OP = 'INSERT' THEN 'I' WHEN NEW.deleted_at IS NOT NULL THEN 'D' ELSE 'U' END,
+            NEW.title, NEW.description, NEW.importance, NEW.sort_key);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER gift_history_insert AFTER INSERT ON gift
+    FOR EACH ROW EXECUTE FUNCTION gift_history_append();
+
+-- перемещения (sort_key) тоже записываются, иначе списки на момент времени показывали бы нынешний порядок
+CREATE TRIGGER gift_history_update AFTER UPDATE ON gift
+    FOR EACH ROW
+    WHEN (OLD.title IS DISTINCT FROM NEW.title
+        OR OLD.description IS DISTINCT FROM NEW.description
+        OR OLD.importance IS DISTINCT FROM NEW.importance
+        OR OLD.sort_key IS DISTINCT FROM NEW.sort_key
+        OR OLD.deleted_at IS DISTINCT FROM NEW.deleted_at)
+    EXECUTE FUNCTION gift_history_append();
+
+-- файлы изображений лежат на диске по content_hash, здесь только метаданные.
+-- Внешнего ключа нет: изображения остаются у подарков, перенесенных в gift_archive, и возвращаются при восстановлении
+CREATE TABLE IF NOT EXISTS gift_image (
+    id BIGSERIAL PRIMARY KEY,
+    gift_id BIGINT NOT NULL,
+    content_hash CHAR(64) NOT NULL,
+    content_type VARCHAR(50) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    UNIQUE (gift_id, content_hash)
+);
+
+CREATE INDEX IF NOT EXISTS gift_image_content_hash_idx ON gift_image (content_hash);
+
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    idempotency_key VARCHAR(512) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    -- NULL - запрос с этим ключом еще выполняется
+    status INTEGER,
+    content_type VARCHAR(255),
+    location VARCHAR(2048),
+    body BYTEA,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idempotency_key_created_at_idx ON idempotency_key (created_at);
@@ -1,6 +1,6 @@
 DELETE FROM gift;
 
-INSERT INTO gift(title, description, importance)
-VALUES ('Набор Lego', 'Lego Technic Ferrari',  'MEDIUM'),
-       ('Книга', 'Java. Библиотека профессионала К. Хорстман', 'HIGH'),
-       ('Толстовка', 'Оверсайз толстовка', 'LOW');
\ No newline at end of file
+INSERT INTO gift(title, description, importance, sort_key)
+VALUES ('Набор Lego', 'Lego Technic Ferrari',  'MEDIUM', 'V'),
+       ('Книга', 'Java. Библиотека профессионала К. Хорстман', 'HIGH', 'V'),
+       ('Толстовка', 'Оверсайз толстовка', 'LOW', 'V');
\ No newline at end of file
@@ -0,0 +1,110 @@
+// Частичное обновление списка пожеланий: изменение, создание и удаление подарка перерисовывают одну строку,
+// следующие страницы списка подгружаются при прокрутке. Без скрипта ссылки и формы работают как обычно
+(function () {
+    const FRAGMENT_HEADER = {'X-Fragment': 'true'};
+    const COLUMNS = 5;
+
+    const table = document.getElementById('wishlist');
+    const body = document.getElementById('gifts');
+    if (!table || !body) {
+        return;
+    }
+
+    function parse(html) {
+        const template = document.createElement('template');
+        template.innerHTML = html.trim();
+        return template.content;
+    }
+
+    async function fetchFragment(url, options) {
+        const response = await fetch(url, Object.assign({headers: FRAGMENT_HEADER}, options));
+        if (!response.ok) {
+            throw new Error(response.status + ' ' + url);
+        }
+        return response;
+    }
+
+    function formRow(fragment) {
+        const row = document.createElement('tr');
+        row.className = 'form-row';
+        const cell = document.createElement('td');
+        cell.colSpan = COLUMNS;
+        cell.appendChild(fragment);
+        row.appendChild(cell);
+        return row;
+    }
+
+    // при неожиданном ответе страница перезагружается целиком
+    function reload() {
+        window.location.reload();
+    }
+
+    const observer = 'IntersectionObserver' in window ? new IntersectionObserver(entries => {
+        entries.filter(entry => entry.isIntersecting).forEach(entry => loadNextPage(entry.target));
+    }, {rootMargin: '200px'}) : null;
+
+    async function loadNextPage(sentinel) {
+        observer.unobserve(sentinel);
+        try {
+            const response = await fetchFragment(sentinel.dataset.next);
+            const rows = parse(await response.text());
+            const next = rows.querySelector('tr.next-page');
+            sentinel.replaceWith(rows);
+            if (next) {
+                observer.observe(next);
+            }
+        } catch (e) {
+            observer.observe(sentinel);
+        }
+    }
+
+    if (observer) {
+        body.querySelectorAll('tr.next-page').forEach(sentinel => observer.observe(sentinel));
+    }
+
+    document.addEventListener('click', async event => {
+        const link = event.target.closest('a.edit, a.create');
+        if (!link) {
+            return;
+        }
+        event.preventDefault();
+        try {
+            const form = parse(await (await fetchFragment(link.href)).text());
+            if (link.classList.contains('create')) {
+                body.prepend(formRow(form));
+            } else {
+                link.closest('tr').replaceWith(formRow(form));
+            }
+        } catch (e) {
+            window.location.href = link.href;
+        }
+    });
+
+    table.addEventListener('submit', async event => {
+        const form = event.target;
+        if (!form.matches('form.delete, form.gift-form')) {
+            return;
+        }
+        event.preventDefault();
+        try {
+            const response = await fetchFragment(form.action, {method: 'POST', body: new URLSearchParams(new FormData(form))});
+            if (form.matches('form.delete')) {
+                form.closest('tr').remove();
+                return;
+            }
+            const fragment = parse(await response.text());
+            const root = fragment.firstElementChild;
+            if (root && root.tagName === 'TR') {
+                // подарок сохранен
+                form.closest('tr').replaceWith(fragment);
+            } else if (root && root.tagName === 'FORM') {
+                // ошибки проверки или похожие подарки
+                form.replaceWith(fragment);
+            } else {
+                reload();
+            }
+        } catch (e) {
+            reload();
+        }
+    });
+})();
@@ -0,0 +1,107 @@
+package ru.berdennikov.wishlist.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки открытой модели.
+ * <p>
+ * Моменты отправки запросов рассчитываются заранее и не зависят от ответов сервера.
+ * Задержка отсчитывается от запланированного момента отправки, а не от фактического,
+ * поэтому остановки сервера и самого генератора не скрываются (поправка на coordinated omission)
+ */
+final class LoadGenerator {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final List<Long> ids;
+    private final LoadTestConfig config;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    LoadGenerator(HttpClient client, URI baseUri, List<Long> ids, LoadTestConfig config) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.ids = ids;
+        this.config = config;
+
+        Map<Operation, Integer> mix = config.mix();
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Подает нагрузку в течение заданного времени и дожидается завершения отправленных запросов
+     *
+     * @param duration длительность нагрузки
+     * @return результаты измерений
+     */
+    LoadTestResult run(Duration duration) throws InterruptedException {
+        LoadTestResult result = new LoadTestResult();
+        AtomicInteger inFlight = new AtomicInteger();
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long intended = start;
+        while (intended < end) {
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+
+            Operation operation = nextOperation();
+            long scheduledAt = intended;
+            long sentAt = System.nanoTime();
+            inFlight.incrementAndGet();
+            client.sendAsync(operation.request(baseUri, ids), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long completedAt = System.nanoTime();
+                        boolean success = error == null && response.statusCode() < 400;
+                        result.record(operation, completedAt - scheduledAt, completedAt - sentAt, success);
+                        inFlight.decrementAndGet();
+                    });
+
+            intended += nextInterval(meanIntervalNanos);
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        result.finish(System.nanoTime() - start, inFlight.get());
+        return result;
+    }
+
+    private Operation nextOperation() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private long nextInterval(double meanIntervalNanos) {
+        if (config.arrival() == LoadTestConfig.Arrival.POISSON) {
+            return Math.max(1L, (long) (-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos));
+        }
+        return Math.max(1L, (long) meanIntervalNanos);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.berdennikov.wishlist.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного теста. Задаются системными свойствами с префиксом {@code loadtest.}
+ *
+ * @param baseUrl     адрес уже запущенного приложения. Если не задан, приложение поднимается внутри процесса
+ * @param database    база данных для встроенного приложения: {@code h2} или {@code postgres} (из application.yaml)
+ * @param rate        интенсивность поступления запросов, запросов в секунду
+ * @param arrival     модель поступления запросов
+ * @param warmup      длительность прогрева, результаты которого не учитываются
+ * @param duration    длительность измерения
+ * @param seedGifts   количество подарков, создаваемых перед началом теста
+ * @param mix         доли операций в общей нагрузке
+ * @param resultsDir  каталог для сохранения результатов
+ * @param label       метка прогона, попадает в имя каталога с результатами
+ */
+public record LoadTestConfig(String baseUrl,
+                             String database,
+                             double rate,
+                             Arrival arrival,
+                             Duration warmup,
+                             Duration duration,
+                             int seedGifts,
+                             Map<Operation, Integer> mix,
+                             Path resultsDir,
+                             String label) {
+
+    /**
+     * Модель поступления запросов открытой системы
+     */
+    public enum Arrival {
+        /**
+         * Равномерные интервалы между запросами
+         */
+        UNIFORM,
+        /**
+         * Пуассоновский поток (экспоненциальные интервалы)
+         */
+        POISSON
+    }
+
+    private static final String DEFAULT_MIX = "read:50,list:10,filter:30,update:10";
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                System.getProperty("loadtest.base-url"),
+                System.getProperty("loadtest.db", "h2"),
+                Double.parseDouble(System.getProperty("loadtest.rate", "200")),
+                Arrival.valueOf(System.getProperty("loadtest.arrival", "poisson").toUpperCase()),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT10S")),
+                Duration.parse(System.getProperty("loadtest.duration", "PT60S")),
+                Integer.parseInt(System.getProperty("loadtest.seed-gifts", "1000")),
+                parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX)),
+                Path.of(System.getProperty("loadtest.results-dir", "loadtest-results")),
+                System.getProperty("loadtest.label", "run"));
+    }
+
+    /**
+     * Разбирает строку вида {@code read:50,list:10,filter:30,update:10}
+     *
+     * @param mix строка с долями операций
+     * @return доли операций, только положительные
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix entry: " + part);
+            }
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix must contain at least one operation: " + mix);
+        }
+        return Collections.unmodifiableMap(weights);
+    }
+
+    public boolean embedded() {
+        return baseUrl == null || baseUrl.isBlank();
+    }
+}
@@ -0,0 +1,134 @@
+package ru.berdennikov.wishlist.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отчет о прогоне нагрузки.
+ * <p>
+ * Сохраняет распределения задержек в формате HdrHistogram (*.hgrm) в отдельный каталог прогона
+ * и дописывает сводную строку по каждой операции в общий {@code summary.csv},
+ * чтобы прогоны на разных коммитах можно было сравнивать между собой
+ */
+final class LoadTestReport {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final DateTimeFormatter RUN_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String SUMMARY_HEADER =
+            "timestamp,commit,label,db,rate,arrival,operation,count,errors,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    private final LoadTestConfig config;
+    private final LoadTestResult result;
+    private final LocalDateTime timestamp = LocalDateTime.now();
+
+    LoadTestReport(LoadTestConfig config, LoadTestResult result) {
+        this.config = config;
+        this.result = result;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-8s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : config.mix().keySet()) {
+            out.println(row(operation.name(), result.latency(operation), result.errors(operation)));
+        }
+        out.println(row("ALL", result.totalLatency(), result.totalErrors()));
+        if (result.unfinished() > 0) {
+            out.printf("WARNING: %d requests did not complete in time and are not included%n", result.unfinished());
+        }
+    }
+
+    /**
+     * Сохраняет результаты прогона
+     *
+     * @return каталог с результатами прогона
+     */
+    Path save() throws IOException {
+        String commit = gitCommit();
+        Path runDir = config.resultsDir().resolve(RUN_TIMESTAMP.format(timestamp) + "-" + commit + "-" + config.label());
+        Files.createDirectories(runDir);
+
+        StringBuilder summary = new StringBuilder();
+        for (Operation operation : config.mix().keySet()) {
+            writeHistogram(runDir.resolve(operation.name().toLowerCase() + ".latency.hgrm"), result.latency(operation));
+            writeHistogram(runDir.resolve(operation.name().toLowerCase() + ".service.hgrm"), result.serviceTime(operation));
+            summary.append(csv(commit, operation.name(), result.latency(operation), result.errors(operation)));
+        }
+        writeHistogram(runDir.resolve("all.latency.hgrm"), result.totalLatency());
+        summary.append(csv(commit, "ALL", result.totalLatency(), result.totalErrors()));
+
+        try (PrintStream out = new PrintStream(Files.newOutputStream(runDir.resolve("summary.txt")), true, StandardCharsets.UTF_8)) {
+            print(out);
+        }
+
+        Path summaryCsv = config.resultsDir().resolve("summary.csv");
+        if (Files.notExists(summaryCsv)) {
+            Files.writeString(summaryCsv, SUMMARY_HEADER + System.lineSeparator(), StandardCharsets.UTF_8);
+        }
+        Files.writeString(summaryCsv, summary, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        return runDir;
+    }
+
+    private String row(String name, Histogram histogram, long errors) {
+        return String.format(Locale.ROOT, "%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f",
+                name, histogram.getTotalCount(), errors, throughput(histogram),
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private String csv(String commit, String name, Histogram histogram, long errors) {
+        return String.format(Locale.ROOT, "%s,%s,%s,%s,%.1f,%s,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                timestamp, commit, config.label(), config.embedded() ? config.database() : config.baseUrl(),
+                config.rate(), config.arrival(), name, histogram.getTotalCount(), errors, throughput(histogram),
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private double throughput(Histogram histogram) {
+        return histogram.getTotalCount() / (result.elapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    private static void writeHistogram(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * Короткий хеш текущего коммита, чтобы результаты можно было сопоставить с версией кода
+     */
+    private static String gitCommit() {
+        try {
+            Process process = new ProcessBuilder("git", "rev-parse", "--short", "HEAD")
+                    .redirectErrorStream(true)
+                    .start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                if (process.waitFor() == 0 && line != null && !line.isBlank()) {
+                    return line.trim();
+                }
+            }
+        } catch (IOException e) {
+            // git недоступен
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,81 @@
+package ru.berdennikov.wishlist.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Результаты одного прогона нагрузки.
+ * <p>
+ * Для каждой операции хранятся две гистограммы в наносекундах:
+ * задержка от запланированного момента отправки (с поправкой на coordinated omission)
+ * и время обслуживания от фактической отправки
+ */
+final class LoadTestResult {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Operation, Histogram> latency = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> serviceTime = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private long elapsedNanos;
+    private int unfinished;
+
+    LoadTestResult() {
+        for (Operation operation : Operation.values()) {
+            latency.put(operation, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            serviceTime.put(operation, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long latencyNanos, long serviceTimeNanos, boolean success) {
+        latency.get(operation).recordValue(latencyNanos);
+        serviceTime.get(operation).recordValue(serviceTimeNanos);
+        if (!success) {
+            errors.get(operation).increment();
+        }
+    }
+
+    void finish(long elapsedNanos, int unfinished) {
+        this.elapsedNanos = elapsedNanos;
+        this.unfinished = unfinished;
+    }
+
+    Histogram latency(Operation operation) {
+        return latency.get(operation);
+    }
+
+    Histogram serviceTime(Operation operation) {
+        return serviceTime.get(operation);
+    }
+
+    long errors(Operation operation) {
+        return errors.get(operation).sum();
+    }
+
+    /**
+     * Гистограмма задержек по всем операциям
+     */
+    Histogram totalLatency() {
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        latency.values().forEach(total::add);
+        return total;
+    }
+
+    long totalErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    int unfinished() {
+        return unfinished;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.berdennikov.wishlist.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.berdennikov.wishlist.WishListApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Нагрузочный тест всего приложения: REST контроллер, сервис, пул соединений и база данных.
+ * <p>
+ * Запуск против встроенной H2: {@code ./mvnw -Ploadtest test-compile exec:java}
+ * <br>
+ * Против PostgreSQL из application.yaml: {@code ./mvnw -Ploadtest test-compile exec:java -Dloadtest.db=postgres}
+ * <br>
+ * Против уже запущенного приложения: {@code -Dloadtest.base-url=http://localhost:8080/}
+ * <p>
+ * Остальные параметры описаны в {@link LoadTestConfig}
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        ConfigurableApplicationContext context = config.embedded() ? startApplication(config) : null;
+        try {
+            URI baseUri = context != null ? localUri(context) : URI.create(withTrailingSlash(config.baseUrl()));
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            List<Long> ids = seed(client, baseUri, config.seedGifts());
+            System.out.printf("Target %s, %d gifts, mix %s, %.0f req/s (%s)%n",
+                    baseUri, ids.size(), config.mix(), config.rate(), config.arrival());
+
+            LoadGenerator generator = new LoadGenerator(client, baseUri, ids, config);
+            if (!config.warmup().isZero()) {
+                System.out.printf("Warm-up for %s%n", config.warmup());
+                generator.run(config.warmup());
+            }
+            System.out.printf("Measuring for %s%n", config.duration());
+            LoadTestResult result = generator.run(config.duration());
+
+            LoadTestReport report = new LoadTestReport(config, result);
+            report.print(System.out);
+            System.out.printf("Results saved to %s%n", report.save());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadTestConfig config) {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--management.server.port=0");
+        args.add("--logging.level.ru.berdennikov.wishlist=warn");
+        // в тестовых настройках прогрев выключен, под нагрузкой приложение запускается как в эксплуатации
+        args.add("--wishlist.warmup.enabled=true");
+        if ("h2".equalsIgnoreCase(config.database())) {
+            args.add("--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+            args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+            args.add("--spring.jpa.hibernate.ddl-auto=create-drop");
+        } else if (!"postgres".equalsIgnoreCase(config.database())) {
+            throw new IllegalArgumentException("Unsupported loadtest.db: " + config.database());
+        }
+        return SpringApplication.run(WishListApplication.class, args.toArray(String[]::new));
+    }
+
+    private static URI localUri(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return URI.create("http://localhost:" + port + "/");
+    }
+
+    private static String withTrailingSlash(String url) {
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    /**
+     * Дополняет список подарков до нужного количества и возвращает идентификаторы всех подарков
+     */
+    private static List<Long> seed(HttpClient client, URI baseUri, int count) throws IOException, InterruptedException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Long> ids = new ArrayList<>();
+        HttpResponse<String> existing = client.send(
+                HttpRequest.newBuilder(baseUri.resolve("api/gifts")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        for (JsonNode gift : mapper.readTree(existing.body())) {
+            ids.add(gift.get("id").asLong());
+        }
+        while (ids.size() < count) {
+            HttpResponse<String> created = client.send(
+                    Operation.CREATE.request(baseUri, ids),
+                    HttpResponse.BodyHandlers.ofString());
+            if (created.statusCode() != 201) {
+                throw new IllegalStateException("Seeding failed with status " + created.statusCode() + ": " + created.body());
+            }
+            ids.add(mapper.readTree(created.body()).get("id").asLong());
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No gifts to run the load test against, set loadtest.seed-gifts");
+        }
+        return List.copyOf(ids);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.berdennikov.wishlist.loadtest;
+
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Операции нагрузочного теста над REST API подарков
+ */
+public enum Operation {
+    /**
+     * Получение подарка по ID
+     */
+    READ {
+        @Override
+        HttpRequest request(URI baseUri, List<Long> ids) {
+            return HttpRequest.newBuilder(baseUri.resolve("api/gifts/" + randomId(ids))).GET().build();
+        }
+    },
+    /**
+     * Получение списка всех подарков
+     */
+    LIST {
+        @Override
+        HttpRequest request(URI baseUri, List<Long> ids) {
+            return HttpRequest.newBuilder(baseUri.resolve("api/gifts")).GET().build();
+        }
+    },
+    /**
+     * Получение списка подарков, отфильтрованных по важности
+     */
+    FILTER {
+        @Override
+        HttpRequest request(URI baseUri, List<Long> ids) {
+            return HttpRequest.newBuilder(baseUri.resolve("api/gifts?importance=" + randomImportance())).GET().build();
+        }
+    },
+    /**
+     * Создание нового подарка. Сгенерированные названия похожи друг на друга, поэтому проверка
+     * на похожие подарки не должна отклонять создание: {@code force=true}
+     */
+    CREATE {
+        @Override
+        HttpRequest request(URI baseUri, List<Long> ids) {
+            return json(HttpRequest.newBuilder(baseUri.resolve("api/gifts?force=true")), "POST", giftJson(null));
+        }
+    },
+    /**
+     * Обновление существующего подарка
+     */
+    UPDATE {
+        @Override
+        HttpRequest request(URI baseUri, List<Long> ids) {
+            long id = randomId(ids);
+            return json(HttpRequest.newBuilder(baseUri.resolve("api/gifts/" + id)), "PUT", giftJson(id));
+        }
+    };
+
+    /**
+     * Строит HTTP запрос операции
+     *
+     * @param baseUri базовый адрес приложения, оканчивающийся на {@code /}
+     * @param ids     идентификаторы существующих подарков
+     * @return HTTP запрос
+     */
+    abstract HttpRequest request(URI baseUri, List<Long> ids);
+
+    private static long randomId(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static Importance randomImportance() {
+        Importance[] values = Importance.values();
+        return values[ThreadLocalRandom.current().nextInt(values.length)];
+    }
+
+    static String giftJson(Long id) {
+        long n = ThreadLocalRandom.current().nextLong(1_000_000_000L);
+        return "{" + (id != null ? "\"id\": " + id + ", " : "")
+                + "\"title\": \"Load test gift " + n + "\", "
+                + "\"description\": \"Generated by load test\", "
+                + "\"importance\": \"" + randomImportance() + "\"}";
+    }
+
+    private static HttpRequest json(HttpRequest.Builder builder, String method, String body) {
+        return builder.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package ru.berdennikov.wishlist.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryInsightsTest {
+
+    private static final String SELECT_BY_ID = "SELECT title FROM gift WHERE id = ?";
+
+    private QueryInsights insights;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:query-insights;DB_CLOSE_DELAY=-1");
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS gift (id BIGINT PRIMARY KEY, title VARCHAR(200))");
+            statement.execute("MERGE INTO gift KEY (id) VALUES (1, 'Gift1'), (2, 'Gift2'), (3, 'Gift3')");
+        }
+        insights = new QueryInsights(properties(Duration.ofMinutes(1)), new SimpleMeterRegistry());
+        dataSource = insights.wrap(h2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        insights.close();
+    }
+
+    @Test
+    void endRequest_findsRepeatedQuery() throws SQLException {
+        insights.beginRequest("GET /gifts");
+        for (long id = 1; id <= 3; id++) {
+            selectTitle(id);
+        }
+        insights.endRequest();
+
+        List<QueryFinding> findings = insights.findings();
+        assertEquals(1, findings.size());
+        assertEquals(QueryFinding.Type.N_PLUS_ONE, findings.get(0).type());
+        assertEquals(SELECT_BY_ID, findings.get(0).sql());
+        assertEquals(3, findings.get(0).count());
+        assertEquals("GET /gifts", findings.get(0).request());
+    }
+
+    @Test
+    void endRequest_ignoresRareQuery() throws SQLException {
+        insights.beginRequest("GET /gifts/1");
+        selectTitle(1);
+        insights.endRequest();
+
+        assertTrue(insights.findings().isEmpty());
+    }
+
+    @Test
+    void record_slowQueryOutsideRequest() throws SQLException {
+        QueryInsights slowInsights = new QueryInsights(properties(Duration.ZERO), new SimpleMeterRegistry());
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:query-insights;DB_CLOSE_DELAY=-1");
+        dataSource = slowInsights.wrap(h2);
+
+        selectTitle(2);
+
+        QueryFinding finding = slowInsights.findings().get(0);
+        assertEquals(QueryFinding.Type.SLOW, finding.type());
+        assertNull(finding.request());
+        slowInsights.close();
+    }
+
+    @Test
+    void wrap_keepsUnwrap() throws SQLException {
+        assertTrue(dataSource.isWrapperFor(JdbcDataSource.class));
+        assertNotNull(dataSource.unwrap(JdbcDataSource.class));
+    }
+
+    private String selectTitle(long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID)) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    private static QueryInsightsProperties properties(Duration slowThreshold) {
+        return new QueryInsightsProperties(true, slowThreshold, 3, 10, true, Duration.ofMinutes(10), Duration.ofSeconds(10));
+    }
+}
\ No newline at end of file
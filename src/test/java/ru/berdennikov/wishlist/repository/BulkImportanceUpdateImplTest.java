@@ -0,0 +1,66 @@
+package ru.berdennikov.wishlist.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.StreamUtils;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Изменение одним запросом с unnest выполняется только на PostgreSQL, поэтому тест использует отдельную
+ * тестовую базу из WISHLIST_TEST_POSTGRES_URL, как {@link GiftHistoryRepositoryTest}
+ */
+@EnabledIfEnvironmentVariable(named = "WISHLIST_TEST_POSTGRES_URL", matches = ".+")
+class BulkImportanceUpdateImplTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private BulkImportanceUpdateImpl bulkUpdate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getenv("WISHLIST_TEST_POSTGRES_URL"),
+                System.getenv("WISHLIST_TEST_POSTGRES_USER"), System.getenv("WISHLIST_TEST_POSTGRES_PASSWORD"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(StreamUtils.copyToString(new ClassPathResource("db/init_db.sql").getInputStream(),
+                StandardCharsets.UTF_8));
+        bulkUpdate = new BulkImportanceUpdateImpl(jdbcTemplate);
+    }
+
+    @Test
+    void update_changesOnlyExistingGifts() {
+        long low = insert("Gift1", Importance.LOW, "V");
+        long high = insert("Gift2", Importance.HIGH, "V");
+        long deleted = insert("Gift3", Importance.LOW, "k");
+        jdbcTemplate.update("UPDATE gift SET deleted_at = now() WHERE id = ?", deleted);
+
+        int updated = bulkUpdate.update(List.of(low, high, deleted, 1_000_000L), Importance.HIGH,
+                List.of("V1", "V2", "V3", "V4"));
+
+        assertEquals(2, updated);
+        assertEquals(Map.of(low, "V1", high, "V"), sortKeys(Importance.HIGH));
+        assertEquals("k", jdbcTemplate.queryForObject("SELECT sort_key FROM gift WHERE id = ?", String.class, deleted));
+    }
+
+    private long insert(String title, Importance importance, String sortKey) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO gift (title, description, importance, sort_key) VALUES (?, NULL, ?, ?) RETURNING id",
+                Long.class, title, importance.name(), sortKey);
+    }
+
+    private Map<Long, String> sortKeys(Importance importance) {
+        return jdbcTemplate.query("SELECT id, sort_key FROM gift WHERE importance = ? AND deleted_at IS NULL",
+                (resultSet, rowNum) -> Map.entry(resultSet.getLong("id"), resultSet.getString("sort_key")),
+                importance.name()).stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+package ru.berdennikov.wishlist.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.StreamUtils;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftChange;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.berdennikov.wishlist.model.GiftChange.Operation.BASELINE;
+import static ru.berdennikov.wishlist.model.GiftChange.Operation.CREATED;
+import static ru.berdennikov.wishlist.model.GiftChange.Operation.DELETED;
+import static ru.berdennikov.wishlist.model.GiftChange.Operation.UPDATED;
+
+/**
+ * Триггер истории, секции и запрос на момент времени есть только в PostgreSQL, поэтому тест выполняется
+ * на отдельной тестовой базе из WISHLIST_TEST_POSTGRES_URL: скрипт init_db.sql пересоздает в ней таблицы
+ */
+@EnabledIfEnvironmentVariable(named = "WISHLIST_TEST_POSTGRES_URL", matches = ".+")
+class GiftHistoryRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private GiftHistoryRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getenv("WISHLIST_TEST_POSTGRES_URL"),
+                System.getenv("WISHLIST_TEST_POSTGRES_USER"), System.getenv("WISHLIST_TEST_POSTGRES_PASSWORD"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // драйвер PostgreSQL выполняет скрипт из нескольких команд целиком, не разбивая тела функций в $$
+        jdbcTemplate.execute(StreamUtils.copyToString(new ClassPathResource("db/init_db.sql").getInputStream(),
+                StandardCharsets.UTF_8));
+        repository = new GiftHistoryRepository(jdbcTemplate);
+    }
+
+    @Test
+    void findByGiftId_recordsChangesAndMoves() {
+        long id = insert("Gift1", Importance.MEDIUM, "V");
+        jdbcTemplate.update("UPDATE gift SET title = 'Gift1 changed' WHERE id = ?", id);
+        jdbcTemplate.update("UPDATE gift SET sort_key = 'k' WHERE id = ?", id);
+        // изменение без новых значений не записывается
+        jdbcTemplate.update("UPDATE gift SET description = description WHERE id = ?", id);
+        jdbcTemplate.update("UPDATE gift SET deleted_at = now() WHERE id = ?", id);
+
+        List<GiftChange> changes = repository.findByGiftId(id, 10);
+
+        assertEquals(List.of(DELETED, UPDATED, UPDATED, CREATED), changes.stream().map(GiftChange::operation).toList());
+        assertEquals("Gift1 changed", changes.get(0).title());
+        assertEquals(2, repository.findByGiftId(id, 2).size());
+    }
+
+    @Test
+    void findAsOf_restoresOrderAtThatTime() {
+        long first = insert("Gift1", Importance.HIGH, "V");
+        long second = insert("Gift2", Importance.HIGH, "k");
+        insert("Gift3", Importance.LOW, "V");
+        Instant beforeMove = now();
+        jdbcTemplate.update("UPDATE gift SET sort_key = 'z' WHERE id = ?", first);
+        jdbcTemplate.update("UPDATE gift SET deleted_at = now() WHERE id = ?", second);
+
+        assertEquals(Map.of(first, "V", second, "k"), sortKeys(repository.findAsOf(beforeMove, Importance.HIGH)));
+        assertEquals(Map.of(first, "z"), sortKeys(repository.findAsOf(now(), Importance.HIGH)));
+        assertEquals(3, repository.findAsOf(beforeMove, null).size());
+    }
+
+    @Test
+    void createPartition_receivesRowsOfItsMonth() {
+        YearMonth month = YearMonth.of(2000, 1);
+
+        repository.createPartition(month);
+        repository.createPartition(month);
+        jdbcTemplate.update("""
+                INSERT INTO gift_history (gift_id, changed_at, operation, title, importance, sort_key)
+                VALUES (1, '2000-01-31T23:59:59Z', 'I', 'Gift1', 'LOW', 'V'),
+                       (1, '2000-02-01T00:00:00Z', 'U', 'Gift1', 'LOW', 'V')""");
+
+        assertTrue(repository.findPartitions().contains(month));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM gift_history_2000_01", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM gift_history_default", Integer.class));
+    }
+
+    @Test
+    void dropPartition() {
+        YearMonth month = YearMonth.of(2000, 1);
+        repository.createPartition(month);
+
+        repository.dropPartition(month);
+
+        assertFalse(repository.findPartitions().contains(month));
+        assertTrue(repository.isSupported());
+    }
+
+    @Test
+    void dropPartitionsBefore_keepsStateOfUnchangedGifts() {
+        repository.createPartition(YearMonth.of(2000, 1));
+        repository.createPartition(YearMonth.of(2000, 2));
+        jdbcTemplate.update("""
+                INSERT INTO gift_history (gift_id, changed_at, operation, title, importance, sort_key)
+                VALUES (1, '2000-01-10T00:00:00Z', 'I', 'Gift1', 'LOW', 'V'),
+                       (1, '2000-01-20T00:00:00Z', 'U', 'Gift1 changed', 'LOW', 'V'),
+                       (2, '2000-01-10T00:00:00Z', 'I', 'Gift2', 'LOW', 'V'),
+                       (2, '2000-01-20T00:00:00Z', 'D', 'Gift2', 'LOW', 'V'),
+                       (3, '2000-01-10T00:00:00Z', 'I', 'Gift3', 'HIGH', 'V'),
+                       (3, '2000-02-10T00:00:00Z', 'U', 'Gift3', 'HIGH', 'k')""");
+
+        assertEquals(List.of(YearMonth.of(2000, 1)), repository.dropPartitionsBefore(YearMonth.of(2000, 2)));
+
+        assertFalse(repository.findPartitions().contains(YearMonth.of(2000, 1)));
+        List<GiftChange> changes = repository.findByGiftId(1, 10);
+        assertEquals(List.of(BASELINE), changes.stream().map(GiftChange::operation).toList());
+        assertEquals("Gift1 changed", changes.get(0).title());
+        assertEquals(Instant.parse("2000-02-01T00:00:00Z"), changes.get(0).changedAt());
+        assertEquals(Map.of(1L, "V", 3L, "V"),
+                sortKeys(repository.findAsOf(Instant.parse("2000-02-05T00:00:00Z"), null)));
+        assertEquals(Map.of(3L, "k"),
+                sortKeys(repository.findAsOf(Instant.parse("2000-02-15T00:00:00Z"), Importance.HIGH)));
+        assertTrue(repository.dropPartitionsBefore(YearMonth.of(2000, 2)).isEmpty());
+        assertEquals(1, repository.findByGiftId(1, 10).size());
+    }
+
+    private long insert(String title, Importance importance, String sortKey) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO gift (title, description, importance, sort_key) VALUES (?, NULL, ?, ?) RETURNING id",
+                Long.class, title, importance.name(), sortKey);
+    }
+
+    private Instant now() {
+        return jdbcTemplate.queryForObject("SELECT clock_timestamp()", Timestamp.class).toInstant();
+    }
+
+    private static Map<Long, String> sortKeys(List<Gift> gifts) {
+        return gifts.stream().collect(Collectors.toMap(Gift::getId, Gift::getSortKey));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package ru.berdennikov.wishlist.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import org.springframework.test.context.jdbc.SqlGroup;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.service.GiftService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@SqlGroup({
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_CLASS, scripts = "classpath:db/create_db.sql"),
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:db/populate_data.sql"),
+        @Sql(executionPhase = ExecutionPhase.AFTER_TEST_METHOD, scripts = "classpath:db/clear_data.sql")
+})
+class JpaGiftRepositoryTest {
+
+    @Autowired
+    private GiftRepository repository;
+
+    @Autowired
+    private GiftService giftService;
+
+    @Test
+    void updateImportance_movedGiftsGoToEnd() {
+        Gift third = giftService.save(new Gift("Gift3", "Description3", Importance.LOW), true);
+        Gift fourth = giftService.save(new Gift("Gift4", "Description4", Importance.LOW), true);
+
+        assertEquals(3, giftService.updateImportance(List.of(fourth.getId(), 2L, third.getId()), Importance.HIGH, false));
+
+        List<Gift> high = repository.findByImportance(Importance.HIGH);
+        assertEquals(List.of(2L, fourth.getId(), third.getId()), high.stream().map(Gift::getId).toList());
+        assertEquals("V", high.get(0).getSortKey());
+        assertTrue(repository.findByImportance(Importance.LOW).isEmpty());
+    }
+
+    @Test
+    void updateImportance_thenUpdateKeepsOrder() {
+        giftService.updateImportance(List.of(1L), Importance.HIGH, false);
+        Gift added = giftService.save(new Gift("Gift3", "Description3", Importance.HIGH), true);
+
+        assertEquals(List.of(2L, 1L, added.getId()),
+                repository.findByImportance(Importance.HIGH).stream().map(Gift::getId).toList());
+    }
+
+    @Test
+    void bulkUpdateImportance_skipsDeleted() {
+        giftService.delete(1L);
+
+        assertEquals(0, repository.bulkUpdateImportance(List.of(1L), Importance.LOW, List.of("V")));
+        assertFalse(repository.findById(1L).isPresent());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,286 @@
+package ru.berdennikov.wishlist.repository.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryGiftRepositoryTest {
+
+    @TempDir
+    private Path dataDir;
+
+    private InMemoryGiftRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = new InMemoryGiftRepository(dataDir, 4, false);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    void save_assignsIds() {
+        Gift first = repository.save(new Gift("Gift1", "Description1", Importance.MEDIUM));
+        Gift second = repository.save(new Gift("Gift2", "Description2", Importance.HIGH));
+
+        assertEquals(1L, first.getId());
+        assertEquals(2L, second.getId());
+        assertEquals(List.of(1L, 2L), repository.findAll().stream().map(Gift::getId).toList());
+    }
+
+    @Test
+    void findById_returnsCopy() {
+        Gift saved = repository.save(new Gift("Gift1", "Description1", Importance.MEDIUM));
+
+        Gift found = repository.findById(saved.getId()).orElseThrow();
+        found.setTitle("Changed without save");
+
+        assertEquals("Gift1", repository.findById(saved.getId()).orElseThrow().getTitle());
+    }
+
+    @Test
+    void findByImportance_followsUpdates() {
+        Gift gift = repository.save(new Gift("Gift1", "Description1", Importance.LOW));
+        repository.save(new Gift("Gift2", "Description2", Importance.HIGH));
+
+        gift.setImportance(Importance.HIGH);
+        repository.save(gift);
+
+        assertTrue(repository.findByImportance(Importance.LOW).isEmpty());
+        assertEquals(2, repository.findByImportance(Importance.HIGH).size());
+    }
+
+    @Test
+    void findByImportance_orderedBySortKey() {
+        Gift second = new Gift("Gift1", "Description1", Importance.LOW);
+        second.setSortKey("k");
+        Gift first = new Gift("Gift2", "Description2", Importance.LOW);
+        first.setSortKey("V");
+        repository.save(second);
+        repository.save(first);
+
+        assertEquals(List.of(first.getId(), second.getId()),
+                repository.findByImportance(Importance.LOW).stream().map(Gift::getId).toList());
+        assertEquals(first.getId(), repository.findFirstByImportanceOrderBySortKeyAscIdAsc(Importance.LOW).orElseThrow().getId());
+        assertEquals(second.getId(), repository.findFirstByImportanceAndSortKeyGreaterThanOrderBySortKeyAscIdAsc(
+                Importance.LOW, "V").orElseThrow().getId());
+    }
+
+    @Test
+    void orderIndex_followsMovesAndDeletes() {
+        Gift first = saveWithSortKey("Gift1", Importance.LOW, "V");
+        Gift second = saveWithSortKey("Gift2", Importance.LOW, "k");
+        Gift third = saveWithSortKey("Gift3", Importance.LOW, "kV");
+
+        first.setSortKey("z");
+        repository.save(first);
+        repository.deleteById(third.getId());
+
+        assertEquals(List.of(second.getId(), first.getId()),
+                repository.findByImportance(Importance.LOW).stream().map(Gift::getId).toList());
+        assertEquals(second.getId(), repository.findFirstByImportanceOrderBySortKeyAscIdAsc(Importance.LOW).orElseThrow().getId());
+        assertEquals(first.getId(), repository.findFirstByImportanceOrderBySortKeyDescIdDesc(Importance.LOW).orElseThrow().getId());
+        assertEquals(first.getId(), repository.findFirstByImportanceAndSortKeyGreaterThanOrderBySortKeyAscIdAsc(
+                Importance.LOW, "k").orElseThrow().getId());
+        assertTrue(repository.findFirstByImportanceAndSortKeyGreaterThanOrderBySortKeyAscIdAsc(Importance.LOW, "z").isEmpty());
+        assertTrue(repository.findFirstByImportanceOrderBySortKeyDescIdDesc(Importance.HIGH).isEmpty());
+    }
+
+    @Test
+    void findPageByImportance_continuesAfterPosition() {
+        Gift first = saveWithSortKey("Gift1", Importance.LOW, "V");
+        Gift second = saveWithSortKey("Gift2", Importance.LOW, "V");
+        Gift third = saveWithSortKey("Gift3", Importance.LOW, "k");
+        saveWithSortKey("Gift4", Importance.HIGH, "a");
+
+        assertEquals(List.of(first.getId(), second.getId()),
+                ids(repository.findPageByImportance(Importance.LOW, null, null, 2)));
+        assertEquals(List.of(second.getId(), third.getId()),
+                ids(repository.findPageByImportance(Importance.LOW, "V", first.getId(), 2)));
+
+        // страница продолжается и после удаленного подарка
+        repository.deleteById(second.getId());
+        assertEquals(List.of(third.getId()), ids(repository.findPageByImportance(Importance.LOW, "V", second.getId(), 2)));
+        assertTrue(repository.findPageByImportance(Importance.LOW, "k", third.getId(), 2).isEmpty());
+    }
+
+    @Test
+    void findMaxSortKeyLength_followsChanges() {
+        Gift longest = saveWithSortKey("Gift1", Importance.LOW, "VVV");
+        saveWithSortKey("Gift2", Importance.LOW, "k");
+        assertEquals(3, repository.findMaxSortKeyLength(Importance.LOW));
+
+        longest.setSortKey("a");
+        repository.save(longest);
+        assertEquals(1, repository.findMaxSortKeyLength(Importance.LOW));
+
+        longest.setImportance(Importance.HIGH);
+        longest.setSortKey("VV");
+        repository.save(longest);
+        assertEquals(1, repository.findMaxSortKeyLength(Importance.LOW));
+        assertEquals(2, repository.findMaxSortKeyLength(Importance.HIGH));
+
+        repository.deleteById(longest.getId());
+        assertNull(repository.findMaxSortKeyLength(Importance.HIGH));
+    }
+
+    @Test
+    void recover_rebuildsOrderIndex() throws IOException {
+        Gift last = saveWithSortKey("Gift1", Importance.LOW, "k");
+        saveWithSortKey("Gift2", Importance.LOW, "V");
+
+        InMemoryGiftRepository recovered = reopenWithoutSnapshot();
+
+        assertEquals(last.getId(), recovered.findFirstByImportanceOrderBySortKeyDescIdDesc(Importance.LOW).orElseThrow().getId());
+        assertEquals(1, recovered.findMaxSortKeyLength(Importance.LOW));
+    }
+
+    @Test
+    void bulkUpdateImportance_movedGiftsGetNewKeys() {
+        Gift existing = saveWithSortKey("Gift1", Importance.HIGH, "V");
+        Gift stays = saveWithSortKey("Gift2", Importance.HIGH, "k");
+        Gift first = saveWithSortKey("Gift3", Importance.LOW, "z");
+        Gift second = saveWithSortKey("Gift4", Importance.LOW, "0");
+
+        assertEquals(3, repository.bulkUpdateImportance(List.of(second.getId(), stays.getId(), first.getId(), 1000L),
+                Importance.HIGH, List.of("l", "m", "n", "o")));
+
+        assertEquals(List.of(existing.getId(), stays.getId(), second.getId(), first.getId()),
+                ids(repository.findByImportance(Importance.HIGH)));
+        assertEquals("k", repository.findById(stays.getId()).orElseThrow().getSortKey());
+        assertTrue(repository.findByImportance(Importance.LOW).isEmpty());
+    }
+
+    @Test
+    void rebalanceSortKeys_skipsConcurrentlyMoved() {
+        Gift moved = new Gift("Gift1", "Description1", Importance.LOW);
+        moved.setSortKey("V");
+        Gift kept = new Gift("Gift2", "Description2", Importance.LOW);
+        kept.setSortKey("k");
+        repository.save(moved);
+        repository.save(kept);
+        List<Gift> read = repository.findByImportance(Importance.LOW);
+        moved.setSortKey("z");
+        repository.save(moved);
+
+        assertEquals(1, repository.rebalanceSortKeys(read, List.of("F", "a")));
+        assertEquals("z", repository.findById(moved.getId()).orElseThrow().getSortKey());
+        assertEquals("a", repository.findById(kept.getId()).orElseThrow().getSortKey());
+    }
+
+    @Test
+    void deleteById() {
+        Gift gift = repository.save(new Gift("Gift1", "Description1", Importance.LOW));
+
+        repository.deleteById(gift.getId());
+
+        assertFalse(repository.existsById(gift.getId()));
+        assertTrue(repository.findByImportance(Importance.LOW).isEmpty());
+        repository.deleteById(1000L);
+    }
+
+    @Test
+    void recover_fromWriteAheadLog() throws IOException {
+        Gift kept = repository.save(new Gift("Gift1", "Описание", Importance.MEDIUM));
+        Gift deleted = repository.save(new Gift("Gift2", null, Importance.HIGH));
+        repository.deleteById(deleted.getId());
+
+        InMemoryGiftRepository recovered = reopenWithoutSnapshot();
+
+        assertEquals(1, recovered.findAll().size());
+        Gift gift = recovered.findById(kept.getId()).orElseThrow();
+        assertEquals("Описание", gift.getDescription());
+        assertEquals(Importance.MEDIUM, gift.getImportance());
+        assertEquals(3L, recovered.save(new Gift("Gift3", null, Importance.LOW)).getId());
+    }
+
+    @Test
+    void recover_fromSnapshotAndLog() throws IOException {
+        repository.save(new Gift("Gift1", "Description1", Importance.MEDIUM));
+        repository.snapshot();
+        repository.save(new Gift("Gift2", "Description2", Importance.HIGH));
+
+        InMemoryGiftRepository recovered = reopenWithoutSnapshot();
+
+        assertEquals(2, recovered.findAll().size());
+        assertEquals(1, recovered.findByImportance(Importance.HIGH).size());
+    }
+
+    @Test
+    void recover_concurrentWritesWithFsync() throws Exception {
+        repository.close();
+        repository = new InMemoryGiftRepository(dataDir, 4, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                writers.add(executor.submit(() -> {
+                    for (int j = 0; j < 25; j++) {
+                        Gift gift = repository.save(new Gift("Gift", null, Importance.LOW));
+                        gift.setImportance(Importance.HIGH);
+                        repository.save(gift);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        InMemoryGiftRepository recovered = reopenWithoutSnapshot();
+
+        assertEquals(200, recovered.findByImportance(Importance.HIGH).size());
+        assertEquals(0, recovered.countByImportance(Importance.LOW));
+    }
+
+    @Test
+    void recover_ignoresTornRecord() throws IOException {
+        repository.save(new Gift("Gift1", "Description1", Importance.MEDIUM));
+        Files.write(dataDir.resolve(InMemoryGiftRepository.LOG_FILE), new byte[]{0, 0, 0, 42, 1, 2},
+                StandardOpenOption.APPEND);
+
+        InMemoryGiftRepository recovered = reopenWithoutSnapshot();
+
+        assertEquals(1, recovered.findAll().size());
+        assertEquals(2L, recovered.save(new Gift("Gift2", null, Importance.LOW)).getId());
+    }
+
+    private Gift saveWithSortKey(String title, Importance importance, String sortKey) {
+        Gift gift = new Gift(title, null, importance);
+        gift.setSortKey(sortKey);
+        return repository.save(gift);
+    }
+
+    private static List<Long> ids(List<Gift> gifts) {
+        return gifts.stream().map(Gift::getId).toList();
+    }
+
+    /**
+     * Открывает хранилище заново, как после аварийной остановки: без снимка при закрытии
+     */
+    private InMemoryGiftRepository reopenWithoutSnapshot() throws IOException {
+        repository = new InMemoryGiftRepository(dataDir, 4, false);
+        return repository;
+    }
+}
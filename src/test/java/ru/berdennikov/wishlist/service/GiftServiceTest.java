@@ -1,16 +1,26 @@
 package ru.berdennikov.wishlist.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.berdennikov.wishlist.exception.DuplicateGiftException;
 import ru.berdennikov.wishlist.exception.GiftNotFoundException;
 import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftPosition;
 import ru.berdennikov.wishlist.model.Importance;
 import ru.berdennikov.wishlist.repository.GiftRepository;
+import ru.berdennikov.wishlist.service.coalescing.ReadCoalescer;
+import ru.berdennikov.wishlist.service.coalescing.ReadCoalescingProperties;
+import ru.berdennikov.wishlist.service.similar.SimilarGift;
+import ru.berdennikov.wishlist.service.similar.SimilarGiftFinder;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,6 +32,13 @@ class GiftServiceTest {
     @Mock
     private GiftRepository giftRepository;
 
+    @Spy
+    private ReadCoalescer readCoalescer =
+            new ReadCoalescer(new ReadCoalescingProperties(true, Duration.ZERO, Map.of()), new SimpleMeterRegistry());
+
+    @Mock
+    private SimilarGiftFinder similarGiftFinder;
+
     @InjectMocks
     private GiftService giftService;
 
@@ -80,6 +97,41 @@ class GiftServiceTest {
         verify(giftRepository, times(1)).save(created);
     }
 
+    @Test
+    void save_invalidatesCoalescedReads() {
+        Gift created = new Gift();
+        created.setTitle("Mock created");
+
+        giftService.save(created);
+
+        verify(readCoalescer, times(1)).invalidate();
+    }
+
+    @Test
+    void save_duplicate() {
+        Gift existing = new Gift(1L, "Набор Lego", null, Importance.HIGH);
+        Gift created = new Gift("Lego набор", null, Importance.LOW);
+        when(similarGiftFinder.findSimilar(eq("Lego набор"), anyInt()))
+                .thenReturn(List.of(new SimilarGift(existing, 0.8)));
+
+        DuplicateGiftException exception = assertThrows(DuplicateGiftException.class, () -> giftService.save(created));
+
+        assertEquals(List.of(existing), exception.getSimilar().stream().map(SimilarGift::gift).toList());
+        verify(giftRepository, never()).save(created);
+    }
+
+    @Test
+    void save_force_skipsDuplicateCheck() {
+        Gift created = new Gift("Lego набор", null, Importance.LOW);
+        when(giftRepository.save(created)).thenReturn(created);
+
+        giftService.save(created, true);
+
+        verify(similarGiftFinder, never()).findSimilar(anyString(), anyInt());
+        verify(giftRepository, times(1)).save(created);
+        verify(similarGiftFinder, times(1)).added(created);
+    }
+
     @Test
     void save_invalid() {
         assertThrows(IllegalArgumentException.class, () -> giftService.save(null));
@@ -127,4 +179,171 @@ class GiftServiceTest {
         verify(giftRepository, times(1)).existsById(1L);
         verify(giftRepository, never()).deleteById(1L);
     }
+
+    @Test
+    void deleteByImportance() {
+        when(giftRepository.bulkDeleteByImportance(Importance.LOW)).thenReturn(3);
+
+        assertEquals(3, giftService.deleteByImportance(Importance.LOW, false));
+        verify(giftRepository, times(1)).bulkDeleteByImportance(Importance.LOW);
+        verify(giftRepository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void deleteByImportance_dryRun() {
+        when(giftRepository.countByImportance(Importance.LOW)).thenReturn(3L);
+
+        assertEquals(3, giftService.deleteByImportance(Importance.LOW, true));
+        verify(giftRepository, never()).bulkDeleteByImportance(any());
+    }
+
+    @Test
+    void updateImportance() {
+        Gift last = new Gift(5L, "Gift5", null, Importance.HIGH);
+        last.setSortKey("k");
+        when(giftRepository.findFirstByImportanceOrderBySortKeyDescIdDesc(Importance.HIGH)).thenReturn(Optional.of(last));
+        List<Long> ids = List.of(2L, 1L);
+        List<String> sortKeys = List.of(RankKeys.after("k"), RankKeys.after(RankKeys.after("k")));
+        when(giftRepository.bulkUpdateImportance(ids, Importance.HIGH, sortKeys)).thenReturn(2);
+
+        assertEquals(2, giftService.updateImportance(List.of(2L, 1L, 2L), Importance.HIGH, false));
+        verify(giftRepository, times(1)).bulkUpdateImportance(ids, Importance.HIGH, sortKeys);
+        verify(giftRepository, never()).save(any());
+        assertTrue("k".compareTo(sortKeys.get(0)) < 0 && sortKeys.get(0).compareTo(sortKeys.get(1)) < 0);
+    }
+
+    @Test
+    void updateImportance_dryRun() {
+        List<Long> ids = List.of(1L, 2L);
+        when(giftRepository.countByIdIn(ids)).thenReturn(1L);
+
+        assertEquals(1, giftService.updateImportance(ids, Importance.HIGH, true));
+        verify(giftRepository, never()).bulkUpdateImportance(any(), any(), any());
+    }
+
+    @Test
+    void updateImportance_emptyIds() {
+        assertThrows(IllegalArgumentException.class, () -> giftService.updateImportance(List.of(), Importance.HIGH, false));
+    }
+
+    @Test
+    void findAll_ordered() {
+        Gift low = new Gift(1L, "Low", null, Importance.LOW);
+        low.setSortKey("V");
+        Gift highSecond = new Gift(2L, "High second", null, Importance.HIGH);
+        highSecond.setSortKey("k");
+        Gift highFirst = new Gift(3L, "High first", null, Importance.HIGH);
+        highFirst.setSortKey("V");
+        when(giftRepository.findAll()).thenReturn(List.of(low, highSecond, highFirst));
+
+        assertEquals(List.of(highFirst, highSecond, low), giftService.getAll());
+    }
+
+    @Test
+    void getPage_continuesWithLessImportant() {
+        Gift high = new Gift(2L, "High gift", null, Importance.HIGH);
+        high.setSortKey("V");
+        Gift medium = new Gift(3L, "Medium gift", null, Importance.MEDIUM);
+        medium.setSortKey("V");
+        when(giftRepository.findPageByImportance(Importance.HIGH, "k", 1L, 2)).thenReturn(List.of(high));
+        when(giftRepository.findPageByImportance(Importance.MEDIUM, null, null, 1)).thenReturn(List.of(medium));
+
+        List<Gift> page = giftService.getPage(null, new GiftPosition(Importance.HIGH, "k", 1L), 2);
+
+        assertEquals(List.of(high, medium), page);
+        verify(giftRepository, never()).findPageByImportance(eq(Importance.LOW), any(), any(), anyInt());
+    }
+
+    @Test
+    void getPage_skipsMoreImportant() {
+        giftService.getPage(null, new GiftPosition(Importance.MEDIUM, "V", 3L), 10);
+
+        verify(giftRepository, never()).findPageByImportance(eq(Importance.HIGH), any(), any(), anyInt());
+        verify(giftRepository, times(1)).findPageByImportance(Importance.MEDIUM, "V", 3L, 10);
+        verify(giftRepository, times(1)).findPageByImportance(Importance.LOW, null, null, 10);
+    }
+
+    @Test
+    void save_appendsToImportance() {
+        Gift last = new Gift(1L, "Last gift", null, Importance.LOW);
+        last.setSortKey("V");
+        Gift created = new Gift("Mock created", null, Importance.LOW);
+        when(giftRepository.findFirstByImportanceOrderBySortKeyDescIdDesc(Importance.LOW)).thenReturn(Optional.of(last));
+        when(giftRepository.save(created)).thenReturn(created);
+
+        giftService.save(created);
+
+        assertTrue(created.getSortKey().compareTo("V") > 0);
+    }
+
+    @Test
+    void update_importanceChanged_appendsToNewImportance() {
+        Gift existing = new Gift(1L, "Existing gift", null, Importance.LOW);
+        existing.setSortKey("k");
+        when(giftRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(giftRepository.findFirstByImportanceOrderBySortKeyDescIdDesc(Importance.HIGH)).thenReturn(Optional.empty());
+
+        giftService.update(new Gift(1L, "Existing gift", null, Importance.HIGH));
+
+        assertEquals("V", existing.getSortKey());
+        verify(giftRepository, times(1)).save(existing);
+    }
+
+    @Test
+    void move_betweenNeighbours() {
+        Gift gift = new Gift(1L, "Moved gift", null, Importance.LOW);
+        gift.setSortKey("z");
+        Gift previous = new Gift(2L, "Previous gift", null, Importance.LOW);
+        previous.setSortKey("A");
+        Gift next = new Gift(3L, "Next gift", null, Importance.LOW);
+        next.setSortKey("C");
+        when(giftRepository.findById(1L)).thenReturn(Optional.of(gift));
+        when(giftRepository.findById(2L)).thenReturn(Optional.of(previous));
+        when(giftRepository.findFirstByImportanceAndSortKeyGreaterThanOrderBySortKeyAscIdAsc(Importance.LOW, "A"))
+                .thenReturn(Optional.of(next));
+        when(giftRepository.save(gift)).thenReturn(gift);
+
+        giftService.move(1L, 2L);
+
+        assertEquals("B", gift.getSortKey());
+        verify(giftRepository, times(1)).save(gift);
+        verify(giftRepository, never()).save(previous);
+        verify(giftRepository, never()).save(next);
+    }
+
+    @Test
+    void move_toTop() {
+        Gift gift = new Gift(1L, "Moved gift", null, Importance.LOW);
+        gift.setSortKey("z");
+        Gift first = new Gift(2L, "First gift", null, Importance.LOW);
+        first.setSortKey("V");
+        when(giftRepository.findById(1L)).thenReturn(Optional.of(gift));
+        when(giftRepository.findFirstByImportanceOrderBySortKeyAscIdAsc(Importance.LOW)).thenReturn(Optional.of(first));
+        when(giftRepository.save(gift)).thenReturn(gift);
+
+        giftService.move(1L, null);
+
+        assertTrue(gift.getSortKey().compareTo("V") < 0);
+    }
+
+    @Test
+    void move_alreadyInPlace() {
+        Gift gift = new Gift(1L, "Moved gift", null, Importance.LOW);
+        gift.setSortKey("V");
+        when(giftRepository.findById(1L)).thenReturn(Optional.of(gift));
+        when(giftRepository.findFirstByImportanceOrderBySortKeyAscIdAsc(Importance.LOW)).thenReturn(Optional.of(gift));
+
+        giftService.move(1L, null);
+
+        verify(giftRepository, never()).save(any());
+    }
+
+    @Test
+    void move_differentImportance() {
+        when(giftRepository.findById(1L)).thenReturn(Optional.of(new Gift(1L, "Moved gift", null, Importance.LOW)));
+        when(giftRepository.findById(2L)).thenReturn(Optional.of(new Gift(2L, "Other gift", null, Importance.HIGH)));
+
+        assertThrows(IllegalArgumentException.class, () -> giftService.move(1L, 2L));
+        verify(giftRepository, never()).save(any());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package ru.berdennikov.wishlist.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankKeysTest {
+
+    @Test
+    void between_emptyList() {
+        assertEquals("V", RankKeys.between(null, null));
+    }
+
+    @Test
+    void between_neighbours() {
+        assertEquals("B", RankKeys.between("A", "C"));
+        assertEquals("AV", RankKeys.between("A", "B"));
+        assertEquals("5", RankKeys.between(null, "AV"));
+    }
+
+    @Test
+    void between_randomInsertsKeepOrder() {
+        Random random = new Random(42);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int position = random.nextInt(keys.size() + 1);
+            String before = position == 0 ? null : keys.get(position - 1);
+            String after = position == keys.size() ? null : keys.get(position);
+
+            String key = RankKeys.between(before, after);
+
+            assertTrue(before == null || before.compareTo(key) < 0, before + " < " + key);
+            assertTrue(after == null || key.compareTo(after) < 0, key + " < " + after);
+            keys.add(position, key);
+        }
+    }
+
+    @Test
+    void between_invalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("C", "A"));
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("A", "A"));
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("A0", null));
+        assertThrows(IllegalArgumentException.class, () -> RankKeys.between("A-", null));
+    }
+
+    @Test
+    void after_appendsKeepKeysShort() {
+        String key = null;
+        for (int i = 0; i < 100_000; i++) {
+            String next = RankKeys.after(key);
+
+            assertTrue(key == null || key.compareTo(next) < 0, key + " < " + next);
+            key = next;
+        }
+        assertTrue(key.length() <= 4, key);
+    }
+
+    @Test
+    void before_prependsKeepKeysShort() {
+        String key = null;
+        for (int i = 0; i < 100_000; i++) {
+            String next = RankKeys.before(key);
+
+            assertTrue(key == null || next.compareTo(key) < 0, next + " < " + key);
+            assertFalse(next.endsWith("0"), next);
+            key = next;
+        }
+        assertTrue(key.length() <= 4, key);
+    }
+
+    @Test
+    void afterAndBefore_longKeys() {
+        assertEquals("W", RankKeys.after("Vzzzzzzzzz"));
+        assertEquals("AW", RankKeys.after("AV"));
+        assertEquals("V", RankKeys.before("V0000001"));
+        assertEquals("AU", RankKeys.before("AV"));
+        assertEquals("V", RankKeys.after(null));
+    }
+
+    @Test
+    void evenlySpaced() {
+        List<String> keys = RankKeys.evenlySpaced(10_000);
+
+        assertEquals(10_000, keys.size());
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+            assertTrue(keys.get(i).length() <= 4);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package ru.berdennikov.wishlist.service.coalescing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void execute_concurrentReadsShareOneCall() throws Exception {
+        ReadCoalescer coalescer = coalescer(Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<List<String>> leader = executor.submit(() -> coalescer.execute("getAll", null, () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return List.of("Gift1");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<List<String>> follower = executor.submit(() -> coalescer.execute("getAll", null, () -> {
+            calls.incrementAndGet();
+            return List.of("Gift2");
+        }));
+        waitForJoined(1);
+        release.countDown();
+
+        assertEquals(List.of("Gift1"), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("Gift1"), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_sequentialReadsWithoutWindow() {
+        ReadCoalescer coalescer = coalescer(Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute("getAll", null, calls::incrementAndGet);
+        coalescer.execute("getAll", null, calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void execute_withinWindow() {
+        ReadCoalescer coalescer = coalescer(Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute("getAll", null, calls::incrementAndGet);
+        assertEquals(1, coalescer.execute("getAll", null, calls::incrementAndGet));
+        assertEquals(2, coalescer.execute("getByImportance", "HIGH", calls::incrementAndGet));
+
+        coalescer.invalidate();
+        assertEquals(3, coalescer.execute("getAll", null, calls::incrementAndGet));
+        // счетчики регистрируются для каждого запроса сразу по всем результатам
+        assertEquals(1.0, meterRegistry.get(ReadCoalescer.METRIC_NAME)
+                .tag("query", "getAll").tag("result", "cached").counter().count());
+        assertEquals(0.0, meterRegistry.get(ReadCoalescer.METRIC_NAME)
+                .tag("query", "getByImportance").tag("result", "cached").counter().count());
+        assertEquals(6, meterRegistry.find(ReadCoalescer.METRIC_NAME).counters().size());
+    }
+
+    @Test
+    void execute_failureIsNotCached() {
+        ReadCoalescer coalescer = coalescer(Duration.ofMinutes(1));
+
+        assertThrows(IllegalStateException.class, () -> coalescer.execute("getAll", null, () -> {
+            throw new IllegalStateException("Database is down");
+        }));
+        assertEquals("Gift1", coalescer.execute("getAll", null, () -> "Gift1"));
+    }
+
+    @Test
+    void execute_disabled() {
+        ReadCoalescer coalescer = new ReadCoalescer(new ReadCoalescingProperties(false, Duration.ofMinutes(1), Map.of()),
+                meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute("getAll", null, calls::incrementAndGet);
+        coalescer.execute("getAll", null, calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+    }
+
+    private ReadCoalescer coalescer(Duration window) {
+        return new ReadCoalescer(new ReadCoalescingProperties(true, window, Map.of()), meterRegistry);
+    }
+
+    private void waitForJoined(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.find(ReadCoalescer.METRIC_NAME).tag("result", "joined").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum() < expected) {
+            assertTrue(System.nanoTime() < deadline, "Follower did not join the read");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
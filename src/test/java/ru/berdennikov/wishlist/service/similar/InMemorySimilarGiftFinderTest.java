@@ -0,0 +1,95 @@
+package ru.berdennikov.wishlist.service.similar;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.repository.memory.InMemoryGiftRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemorySimilarGiftFinderTest {
+
+    @TempDir
+    private Path dataDir;
+
+    private InMemoryGiftRepository repository;
+    private InMemorySimilarGiftFinder finder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = new InMemoryGiftRepository(dataDir, 4, false);
+        finder = new InMemorySimilarGiftFinder(repository, new SimilarityProperties(true, 0.5));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    void findSimilar_wordOrderAndCase() {
+        Gift lego = repository.save(new Gift("Набор Lego Technic", null, Importance.HIGH));
+        repository.save(new Gift("Книга по Java", null, Importance.LOW));
+
+        List<SimilarGift> similar = finder.findSimilar("lego technic набор", 10);
+
+        assertEquals(1, similar.size());
+        assertEquals(lego.getId(), similar.get(0).gift().getId());
+        assertEquals(1.0, similar.get(0).similarity());
+    }
+
+    @Test
+    void findSimilar_mostSimilarFirst() {
+        Gift far = repository.save(new Gift("Наушники беспроводные Sony", null, Importance.LOW));
+        Gift near = repository.save(new Gift("Наушники беспроводные", null, Importance.LOW));
+
+        List<SimilarGift> similar = finder.findSimilar("Беспроводные наушники", 10);
+
+        assertEquals(List.of(near.getId(), far.getId()), similar.stream().map(s -> s.gift().getId()).toList());
+        assertTrue(similar.get(0).similarity() > similar.get(1).similarity());
+    }
+
+    @Test
+    void findSimilar_belowThreshold() {
+        repository.save(new Gift("Велосипед", null, Importance.HIGH));
+
+        assertTrue(finder.findSimilar("Самокат", 10).isEmpty());
+    }
+
+    @Test
+    void findSimilar_followsChanges() {
+        assertTrue(finder.findSimilar("Настольная игра", 10).isEmpty());
+
+        Gift game = repository.save(new Gift("Настольная игра", null, Importance.MEDIUM));
+        finder.added(game);
+        assertEquals(1, finder.findSimilar("Настольная игра", 10).size());
+
+        repository.deleteById(game.getId());
+        finder.removed(game.getId());
+        assertTrue(finder.findSimilar("Настольная игра", 10).isEmpty());
+    }
+
+    @Test
+    void findSimilar_limit() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(new Gift("Подарочный сертификат " + i, null, Importance.LOW));
+        }
+
+        assertEquals(3, finder.findSimilar("Подарочный сертификат", 3).size());
+    }
+
+    @Test
+    void similarity_sameAsPgTrgm() {
+        assertEquals(1.0, Trigrams.similarity(Trigrams.of("word"), Trigrams.of("WORD!")));
+        // pg_trgm: similarity('word', 'two words') = 0.36363637
+        assertEquals(4.0 / 11, Trigrams.similarity(Trigrams.of("word"), Trigrams.of("two words")), 1e-6);
+        assertEquals(0, Trigrams.of("!!").length);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package ru.berdennikov.wishlist.web.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import org.springframework.test.context.jdbc.SqlGroup;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.berdennikov.wishlist.service.archive.GiftArchiveService;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.berdennikov.wishlist.web.controller.GiftRestController.REST_GIFT_URL;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {"wishlist.compaction.retention=0s", "wishlist.compaction.batch-delay=0ms"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@SqlGroup({
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_CLASS, scripts = "classpath:db/create_db.sql"),
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:db/populate_data.sql"),
+        @Sql(executionPhase = ExecutionPhase.AFTER_TEST_METHOD, scripts = "classpath:db/clear_data.sql")
+})
+class GiftArchiveRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GiftArchiveService archiveService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void delete_keepsTombstone() throws Exception {
+        mockMvc.perform(delete(REST_GIFT_URL + "/1"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(REST_GIFT_URL + "/1"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(REST_GIFT_URL))
+                .andExpect(jsonPath("$", hasSize(1)));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM gift", Integer.class));
+    }
+
+    @Test
+    void restore_beforeCompaction() throws Exception {
+        mockMvc.perform(delete(REST_GIFT_URL + "/1"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(post(REST_GIFT_URL + "/1/restore"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Gift1")));
+        mockMvc.perform(get(REST_GIFT_URL))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void restore_fromArchive() throws Exception {
+        mockMvc.perform(delete(REST_GIFT_URL).param("importance", "MEDIUM"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, archiveService.compact());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM gift", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM gift_archive", Integer.class));
+
+        mockMvc.perform(post(REST_GIFT_URL + "/1/restore"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importance", is("MEDIUM")));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM gift_archive", Integer.class));
+    }
+
+    @Test
+    void restore_notDeleted() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL + "/1/restore"))
+                .andExpect(status().isNotFound());
+    }
+}
\ No newline at end of file
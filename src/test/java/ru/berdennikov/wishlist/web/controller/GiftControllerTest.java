@@ -13,15 +13,22 @@ import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
 import org.springframework.test.context.jdbc.SqlGroup;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.berdennikov.wishlist.service.similar.SimilarGiftFinder;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static ru.berdennikov.wishlist.web.controller.GiftWebController.FRAGMENT_HEADER;
 import static ru.berdennikov.wishlist.web.controller.GiftWebController.GIFT_FORM;
+import static ru.berdennikov.wishlist.web.controller.GiftWebController.GIFT_FORM_FRAGMENT;
 import static ru.berdennikov.wishlist.web.controller.GiftWebController.GIFT_NOT_FOUND_FORM;
+import static ru.berdennikov.wishlist.web.controller.GiftWebController.GIFT_ROW_FRAGMENT;
 import static ru.berdennikov.wishlist.web.controller.GiftWebController.GIFT_WEB_URL;
 import static ru.berdennikov.wishlist.web.controller.GiftWebController.WISHLIST_REDIRECT;
+import static ru.berdennikov.wishlist.web.controller.GiftWebController.WISHLIST_ROWS_FRAGMENT;
 import static ru.berdennikov.wishlist.web.controller.GiftWebController.WISHLIST_VIEW;
 
 @ExtendWith(SpringExtension.class)
@@ -40,6 +47,9 @@ class GiftControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private SimilarGiftFinder similarGiftFinder;
+
     @Test
     void showAll() throws Exception {
         mockMvc.perform(get(GIFT_WEB_URL))
@@ -76,6 +86,28 @@ class GiftControllerTest {
                 .andExpect(view().name(WISHLIST_REDIRECT));
     }
 
+    @Test
+    void createOrUpdate_createDuplicate() throws Exception {
+        // тестовые данные вставляются в обход сервиса
+        similarGiftFinder.invalidate();
+
+        mockMvc.perform(post(GIFT_WEB_URL + "/createOrUpdate")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("title", "Gift1")
+                        .param("importance", "LOW"))
+                .andExpect(status().isOk())
+                .andExpect(view().name(GIFT_FORM))
+                .andExpect(model().attributeExists("similarGifts"));
+
+        mockMvc.perform(post(GIFT_WEB_URL + "/createOrUpdate")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("title", "Gift1")
+                        .param("importance", "LOW")
+                        .param("force", "true"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(view().name(WISHLIST_REDIRECT));
+    }
+
     @Test
     void addWithErrors() throws Exception {
         mockMvc.perform(post(GIFT_WEB_URL + "/createOrUpdate"))
@@ -111,9 +143,62 @@ class GiftControllerTest {
                 .andExpect(view().name(WISHLIST_REDIRECT));
     }
 
+    @Test
+    void editFragment() throws Exception {
+        mockMvc.perform(post(GIFT_WEB_URL + "/createOrUpdate")
+                        .header(FRAGMENT_HEADER, "true")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("id", "1")
+                        .param("title", "Gift500")
+                        .param("importance", "LOW"))
+                .andExpect(status().isOk())
+                .andExpect(view().name(GIFT_ROW_FRAGMENT))
+                .andExpect(content().string(containsString("id=\"gift-1\"")))
+                .andExpect(content().string(not(containsString("<html"))));
+    }
+
+    @Test
+    void showEditFormFragment() throws Exception {
+        mockMvc.perform(get(GIFT_WEB_URL + "/edit/1").header(FRAGMENT_HEADER, "true"))
+                .andExpect(status().isOk())
+                .andExpect(view().name(GIFT_FORM_FRAGMENT));
+    }
+
+    @Test
+    void showNextPage() throws Exception {
+        mockMvc.perform(get(GIFT_WEB_URL)
+                        .header(FRAGMENT_HEADER, "true")
+                        .param("afterImportance", "HIGH")
+                        .param("afterKey", "V")
+                        .param("afterId", "2"))
+                .andExpect(status().isOk())
+                .andExpect(view().name(WISHLIST_ROWS_FRAGMENT))
+                .andExpect(model().attribute(GIFTS_ATTRIBUTE, hasSize(1)))
+                .andExpect(model().attributeDoesNotExist("nextPage"));
+    }
+
+    @Test
+    void delete() throws Exception {
+        mockMvc.perform(post(GIFT_WEB_URL + "/delete/1"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(view().name(WISHLIST_REDIRECT));
+    }
+
+    @Test
+    void deleteFragment() throws Exception {
+        mockMvc.perform(post(GIFT_WEB_URL + "/delete/1").header(FRAGMENT_HEADER, "true"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void delete_getNotAllowed() throws Exception {
+        mockMvc.perform(get(GIFT_WEB_URL + "/delete/1"))
+                .andExpect(status().isMethodNotAllowed());
+    }
+
     @Test
     void deleteNotFoundForm() throws Exception {
-        mockMvc.perform(get(GIFT_WEB_URL + "/delete/1000"))
+        mockMvc.perform(post(GIFT_WEB_URL + "/delete/1000"))
                 .andExpect(status().isOk())
                 .andExpect(view().name(GIFT_NOT_FOUND_FORM));
     }
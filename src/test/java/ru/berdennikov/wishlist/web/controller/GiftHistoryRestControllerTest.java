@@ -0,0 +1,83 @@
+package ru.berdennikov.wishlist.web.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.berdennikov.wishlist.exception.GiftNotFoundException;
+import ru.berdennikov.wishlist.model.Gift;
+import ru.berdennikov.wishlist.model.GiftChange;
+import ru.berdennikov.wishlist.model.Importance;
+import ru.berdennikov.wishlist.service.history.GiftHistoryService;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.berdennikov.wishlist.web.controller.GiftRestController.REST_GIFT_URL;
+
+@ExtendWith(MockitoExtension.class)
+@WebMvcTest(GiftHistoryRestController.class)
+@AutoConfigureMockMvc
+class GiftHistoryRestControllerTest {
+
+    private static final Instant AS_OF = Instant.parse("2024-05-01T12:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private GiftHistoryService historyService;
+
+    @Test
+    void getHistory() throws Exception {
+        List<GiftChange> changes = List.of(
+                new GiftChange(2, 1, AS_OF.plusSeconds(60), GiftChange.Operation.UPDATED, "Gift2", null, Importance.HIGH),
+                new GiftChange(1, 1, AS_OF, GiftChange.Operation.CREATED, "Gift1", null, Importance.LOW));
+        when(historyService.getHistory(1L, 100)).thenReturn(changes);
+
+        mockMvc.perform(get(REST_GIFT_URL + "/1/history"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].operation", is("UPDATED")))
+                .andExpect(jsonPath("$[1].title", is("Gift1")));
+    }
+
+    @Test
+    void getHistory_notFound() throws Exception {
+        when(historyService.getHistory(100L, 100)).thenThrow(new GiftNotFoundException(100L));
+
+        mockMvc.perform(get(REST_GIFT_URL + "/100/history"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getHistory_invalidLimit() throws Exception {
+        when(historyService.getHistory(1L, 0)).thenThrow(new IllegalArgumentException("limit must be from 1 to 1000"));
+
+        mockMvc.perform(get(REST_GIFT_URL + "/1/history").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAsOf() throws Exception {
+        when(historyService.getAsOf(AS_OF, Importance.HIGH))
+                .thenReturn(List.of(new Gift(1L, "Gift1", "Description1", Importance.HIGH)));
+
+        mockMvc.perform(get(REST_GIFT_URL).param("asOf", "2024-05-01T12:00:00Z").param("importance", "HIGH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("Gift1")));
+
+        verify(historyService, times(1)).getAsOf(AS_OF, Importance.HIGH);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+package ru.berdennikov.wishlist.web.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import org.springframework.test.context.jdbc.SqlGroup;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.berdennikov.wishlist.web.controller.GiftRestController.REST_GIFT_URL;
+import static ru.berdennikov.wishlist.web.controller.ImageContentController.IMAGE_URL;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "wishlist.images.directory=target/test-images")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@SqlGroup({
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_CLASS, scripts = "classpath:db/create_db.sql"),
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:db/populate_data.sql"),
+        @Sql(executionPhase = ExecutionPhase.AFTER_TEST_METHOD, scripts = "classpath:db/clear_data.sql")
+})
+class GiftImageRestControllerTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+    private static final String HASH = sha256(PNG);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void upload() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL + "/1/images").contentType("image/png").content(PNG))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, IMAGE_URL + "/" + HASH))
+                .andExpect(jsonPath("$.hash", is(HASH)))
+                .andExpect(jsonPath("$.contentType", is("image/png")))
+                .andExpect(jsonPath("$.size", is(PNG.length)));
+    }
+
+    @Test
+    void upload_sameImageTwice() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL + "/1/images").contentType("image/png").content(PNG))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post(REST_GIFT_URL + "/1/images").contentType("image/png").content(PNG))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post(REST_GIFT_URL + "/2/images").contentType("image/png").content(PNG))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(REST_GIFT_URL + "/1/images"))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void upload_notImage() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL + "/1/images").contentType("image/png")
+                        .content("<html></html>".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void upload_giftNotFound() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL + "/100/images").contentType("image/png").content(PNG))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void get_cacheHeaders() throws Exception {
+        upload();
+
+        mockMvc.perform(get(IMAGE_URL + "/" + HASH))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(PNG));
+
+        mockMvc.perform(get(IMAGE_URL + "/" + HASH).header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void get_range() throws Exception {
+        upload();
+
+        mockMvc.perform(get(IMAGE_URL + "/" + HASH).header(HttpHeaders.RANGE, "bytes=1-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-3/" + PNG.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(PNG, 1, 4)));
+
+        mockMvc.perform(get(IMAGE_URL + "/" + HASH).header(HttpHeaders.RANGE, "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + PNG.length));
+    }
+
+    @Test
+    void delete_lastAttachment() throws Exception {
+        upload();
+
+        mockMvc.perform(delete(REST_GIFT_URL + "/1/images/1"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get(IMAGE_URL + "/" + HASH))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete(REST_GIFT_URL + "/1/images/1"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -11,10 +11,12 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.berdennikov.wishlist.exception.DuplicateGiftException;
 import ru.berdennikov.wishlist.exception.GiftNotFoundException;
 import ru.berdennikov.wishlist.model.Gift;
 import ru.berdennikov.wishlist.model.Importance;
 import ru.berdennikov.wishlist.service.GiftService;
+import ru.berdennikov.wishlist.service.similar.SimilarGift;
 
 import java.util.Collections;
 import java.util.List;
@@ -114,7 +116,7 @@ class GiftRestControllerTest {
     @Test
     void create() throws Exception {
         Gift newGift = new Gift("New gift", "New description", Importance.HIGH);
-        when(giftService.save(any(Gift.class))).thenReturn(newGift);
+        when(giftService.save(any(Gift.class), eq(false))).thenReturn(newGift);
 
         mockMvc.perform(post(REST_GIFT_URL)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -122,7 +124,54 @@ class GiftRestControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.title", is("New gift")));
 
-        verify(giftService, times(1)).save(any(Gift.class));
+        verify(giftService, times(1)).save(any(Gift.class), eq(false));
+    }
+
+    @Test
+    void create_duplicate() throws Exception {
+        Gift newGift = new Gift("Gift1 again", "New description", Importance.HIGH);
+        when(giftService.save(any(Gift.class), eq(false)))
+                .thenThrow(new DuplicateGiftException(newGift.getTitle(), List.of(new SimilarGift(gift1, 0.6))));
+
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newGift)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.similar", hasSize(1)))
+                .andExpect(jsonPath("$.similar[0].gift.title", is(GIFT_TITLE_1)));
+    }
+
+    @Test
+    void create_duplicateForced() throws Exception {
+        Gift newGift = new Gift("Gift1 again", "New description", Importance.HIGH);
+        when(giftService.save(any(Gift.class), eq(true))).thenReturn(newGift);
+
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .param("force", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newGift)))
+                .andExpect(status().isCreated());
+
+        verify(giftService, times(1)).save(any(Gift.class), eq(true));
+    }
+
+    @Test
+    void findSimilar() throws Exception {
+        when(giftService.findSimilar("Gift", 10)).thenReturn(List.of(new SimilarGift(gift1, 0.5)));
+
+        mockMvc.perform(get(REST_GIFT_URL + "/similar").param("title", "Gift"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].gift.id", is(1)))
+                .andExpect(jsonPath("$[0].similarity", is(0.5)));
+    }
+
+    @Test
+    void findSimilar_blankTitle() throws Exception {
+        mockMvc.perform(get(REST_GIFT_URL + "/similar").param("title", " "))
+                .andExpect(status().isBadRequest());
+
+        verify(giftService, never()).findSimilar(anyString(), anyInt());
     }
 
     @Test
@@ -132,7 +181,7 @@ class GiftRestControllerTest {
                         .content(objectMapper.writeValueAsString(withEmptyTitle)))
                 .andExpect(status().isBadRequest());
 
-        verify(giftService, never()).save(any(Gift.class));
+        verify(giftService, never()).save(any(Gift.class), anyBoolean());
     }
 
     @Test
@@ -142,7 +191,7 @@ class GiftRestControllerTest {
                         .content(objectMapper.writeValueAsString(withInvalidSizeTitle)))
                 .andExpect(status().isBadRequest());
 
-        verify(giftService, never()).save(any(Gift.class));
+        verify(giftService, never()).save(any(Gift.class), anyBoolean());
     }
 
     @Test
@@ -207,4 +256,108 @@ class GiftRestControllerTest {
 
         verify(giftService, times(1)).delete(1L);
     }
+
+    @Test
+    void deleteByImportance() throws Exception {
+        when(giftService.deleteByImportance(Importance.LOW, false)).thenReturn(3L);
+
+        mockMvc.perform(delete(REST_GIFT_URL).param("importance", Importance.LOW.name()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(3)))
+                .andExpect(jsonPath("$.dryRun", is(false)));
+
+        verify(giftService, times(1)).deleteByImportance(Importance.LOW, false);
+    }
+
+    @Test
+    void deleteByImportance_dryRun() throws Exception {
+        when(giftService.deleteByImportance(Importance.LOW, true)).thenReturn(3L);
+
+        mockMvc.perform(delete(REST_GIFT_URL)
+                        .param("importance", Importance.LOW.name())
+                        .param("dryRun", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(3)))
+                .andExpect(jsonPath("$.dryRun", is(true)));
+    }
+
+    @Test
+    void deleteByImportance_withoutImportance() throws Exception {
+        mockMvc.perform(delete(REST_GIFT_URL))
+                .andExpect(status().isBadRequest());
+
+        verify(giftService, never()).deleteByImportance(any(), anyBoolean());
+    }
+
+    @Test
+    void updateImportance() throws Exception {
+        when(giftService.updateImportance(List.of(1L, 2L), Importance.HIGH, false)).thenReturn(2L);
+
+        mockMvc.perform(patch(REST_GIFT_URL)
+                        .param("ids", "1,2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"importance\": \"HIGH\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(2)));
+
+        verify(giftService, times(1)).updateImportance(List.of(1L, 2L), Importance.HIGH, false);
+    }
+
+    @Test
+    void updateImportance_withoutImportance() throws Exception {
+        mockMvc.perform(patch(REST_GIFT_URL)
+                        .param("ids", "1,2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+
+        verify(giftService, never()).updateImportance(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void move() throws Exception {
+        Gift moved = new Gift(1L, GIFT_TITLE_1, "Description1", Importance.MEDIUM);
+        moved.setSortKey("k");
+        when(giftService.move(1L, 3L)).thenReturn(moved);
+
+        mockMvc.perform(post(REST_GIFT_URL + "/1/move")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"after\": 3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sortKey", is("k")));
+
+        verify(giftService, times(1)).move(1L, 3L);
+    }
+
+    @Test
+    void move_toTop() throws Exception {
+        when(giftService.move(1L, null)).thenReturn(gift1);
+
+        mockMvc.perform(post(REST_GIFT_URL + "/1/move")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isOk());
+
+        verify(giftService, times(1)).move(1L, null);
+    }
+
+    @Test
+    void move_notFound() throws Exception {
+        when(giftService.move(1L, 2L)).thenThrow(new GiftNotFoundException(2L));
+
+        mockMvc.perform(post(REST_GIFT_URL + "/1/move")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"after\": 2}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void move_differentImportance() throws Exception {
+        when(giftService.move(1L, 2L)).thenThrow(new IllegalArgumentException("Gifts must have the same importance"));
+
+        mockMvc.perform(post(REST_GIFT_URL + "/1/move")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"after\": 2}"))
+                .andExpect(status().isBadRequest());
+    }
 }
\ No newline at end of file
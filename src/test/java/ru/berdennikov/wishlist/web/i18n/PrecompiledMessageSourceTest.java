@@ -0,0 +1,94 @@
+package ru.berdennikov.wishlist.web.i18n;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.NoSuchMessageException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecompiledMessageSourceTest {
+
+    @TempDir
+    private Path directory;
+
+    private PrecompiledMessageSource messageSource;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(directory.resolve("app.properties"), "base=Base\ngreeting=Base greeting {0}\n");
+        Files.writeString(directory.resolve("app_en.properties"),
+                "greeting=Hello, {0}! You have {1,number,integer} gifts\nquoted=It''s\n");
+        Files.writeString(directory.resolve("app_ru.properties"), "greeting=Привет, {0}!\n");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (messageSource != null) {
+            messageSource.close();
+        }
+    }
+
+    @Test
+    void getMessage_localeFallback() {
+        messageSource = create(false);
+
+        assertEquals("Привет, Anna!", messageSource.getMessage("greeting", new Object[]{"Anna"}, new Locale("ru", "RU")));
+        assertEquals("Hello, Anna! You have 1,234 gifts",
+                messageSource.getMessage("greeting", new Object[]{"Anna", 1234}, Locale.US));
+        assertEquals("Base", messageSource.getMessage("base", null, Locale.US));
+        assertEquals("Base greeting Anna", messageSource.getMessage("greeting", new Object[]{"Anna"}, Locale.GERMAN));
+    }
+
+    @Test
+    void getMessage_withoutArgumentsNotFormatted() {
+        messageSource = create(false);
+
+        assertEquals("It''s", messageSource.getMessage("quoted", null, Locale.ENGLISH));
+    }
+
+    @Test
+    void getMessage_notFound() {
+        messageSource = create(false);
+
+        assertEquals("Default", messageSource.getMessage("missing", null, "Default", Locale.ENGLISH));
+        assertThrows(NoSuchMessageException.class, () -> messageSource.getMessage("quoted", null, Locale.FRENCH));
+    }
+
+    @Test
+    void reload() throws IOException {
+        messageSource = create(false);
+        Files.writeString(directory.resolve("app_en.properties"), "greeting=Hi, {0}\n");
+
+        assertEquals("Hello, Anna! You have 1 gifts", messageSource.getMessage("greeting", new Object[]{"Anna", 1}, Locale.ENGLISH));
+        messageSource.reload();
+        assertEquals("Hi, Anna", messageSource.getMessage("greeting", new Object[]{"Anna"}, Locale.ENGLISH));
+    }
+
+    @Test
+    void reload_onFileChange() throws Exception {
+        messageSource = create(true);
+        assertTrue(messageSource.isWatching());
+
+        Files.writeString(directory.resolve("app_en.properties"), "greeting=Hi, {0}\n");
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!"Hi, Anna".equals(messageSource.getMessage("greeting", new Object[]{"Anna"}, Locale.ENGLISH))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("Hi, Anna", messageSource.getMessage("greeting", new Object[]{"Anna"}, Locale.ENGLISH));
+    }
+
+    private PrecompiledMessageSource create(boolean watch) {
+        return new PrecompiledMessageSource(
+                new MessagesProperties("file:" + directory.resolve("app"), watch, Duration.ofMillis(50)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.berdennikov.wishlist.web.idempotency.IdempotencyFilter.IDEMPOTENCY_KEY_HEADER;
+import static ru.berdennikov.wishlist.web.idempotency.IdempotencyFilter.REPLAYED_HEADER;
+
+/**
+ * Одновременные запросы с одним ключом в одном и в двух экземплярах приложения с общей таблицей idempotency_key,
+ * а также чтение сохраненного фильтром тела запроса
+ */
+class IdempotencyFilterConcurrencyTest {
+
+    private static final String BODY = """
+            {"title": "New gift", "importance": "HIGH"}""";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("db/create_db.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+        database.shutdown();
+    }
+
+    @Test
+    void sameInstance_executedOnce() throws Exception {
+        IdempotencyFilter filter = filter(Duration.ofSeconds(5));
+
+        Future<MockHttpServletResponse> first = executor.submit(() -> perform(filter, blockingChain(201)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<MockHttpServletResponse> second = executor.submit(() -> perform(filter, blockingChain(201)));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(201, first.get(5, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse replayed = second.get(5, TimeUnit.SECONDS);
+        assertEquals(201, replayed.getStatus());
+        assertEquals("true", replayed.getHeader(REPLAYED_HEADER));
+        assertEquals(first.get().getContentAsString(), replayed.getContentAsString());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void twoInstances_secondWaitsForReservation() throws Exception {
+        IdempotencyFilter node1 = filter(Duration.ofSeconds(5));
+        IdempotencyFilter node2 = filter(Duration.ofSeconds(5));
+
+        Future<MockHttpServletResponse> first = executor.submit(() -> perform(node1, blockingChain(201)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<MockHttpServletResponse> second = executor.submit(() -> perform(node2, blockingChain(201)));
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+        release.countDown();
+
+        assertEquals(201, first.get(5, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse replayed = second.get(5, TimeUnit.SECONDS);
+        assertEquals(201, replayed.getStatus());
+        assertEquals("true", replayed.getHeader(REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void twoInstances_conflictWhileInProgress() throws Exception {
+        IdempotencyFilter node1 = filter(Duration.ofSeconds(5));
+        IdempotencyFilter node2 = filter(Duration.ofMillis(100));
+
+        Future<MockHttpServletResponse> first = executor.submit(() -> perform(node1, blockingChain(201)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(409, perform(node2, blockingChain(201)).getStatus());
+        release.countDown();
+        assertEquals(201, first.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void twoInstances_serverErrorReleasesReservation() throws Exception {
+        IdempotencyFilter node1 = filter(Duration.ofSeconds(5));
+        IdempotencyFilter node2 = filter(Duration.ofSeconds(5));
+        release.countDown();
+
+        assertEquals(500, perform(node1, blockingChain(500)).getStatus());
+        MockHttpServletResponse retry = perform(node2, blockingChain(201));
+
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader(REPLAYED_HEADER));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void bodyTooLarge() throws Exception {
+        IdempotencyFilter filter = new IdempotencyFilter(store(), Duration.ofSeconds(5), 16, Clock.systemUTC());
+        release.countDown();
+
+        assertEquals(413, perform(filter, blockingChain(201)).getStatus());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void readListener_receivesCachedBody() throws Exception {
+        IdempotencyFilter filter = filter(Duration.ofSeconds(5));
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+
+        MockHttpServletResponse response = perform(filter, (request, servletResponse) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[8];
+                    while (input.isReady() && !input.isFinished()) {
+                        int read = input.read(buffer);
+                        if (read > 0) {
+                            received.write(buffer, 0, read);
+                        }
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+            ((HttpServletResponse) servletResponse).setStatus(201);
+        });
+
+        assertEquals(201, response.getStatus());
+        assertTrue(allDataRead.get());
+        assertEquals(BODY, received.toString(StandardCharsets.UTF_8));
+    }
+
+    private IdempotencyFilter filter(Duration waitTimeout) {
+        // у каждого экземпляра свое хранилище над общей базой данных
+        return new IdempotencyFilter(store(), waitTimeout, 1024, Clock.systemUTC());
+    }
+
+    private JdbcIdempotencyStore store() {
+        return new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ofMinutes(5), Clock.systemUTC());
+    }
+
+    private FilterChain blockingChain(int status) {
+        return (request, response) -> {
+            int execution = executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType("application/json");
+            response.getOutputStream().write(("{\"id\":" + execution + "}").getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private static MockHttpServletResponse perform(IdempotencyFilter filter, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/gifts");
+        request.addHeader(IDEMPOTENCY_KEY_HEADER, "create-1");
+        request.setContentType("application/json");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import org.springframework.test.context.jdbc.SqlGroup;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.berdennikov.wishlist.service.similar.SimilarGiftFinder;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.berdennikov.wishlist.web.controller.GiftRestController.REST_GIFT_URL;
+import static ru.berdennikov.wishlist.web.idempotency.IdempotencyFilter.IDEMPOTENCY_KEY_HEADER;
+import static ru.berdennikov.wishlist.web.idempotency.IdempotencyFilter.REPLAYED_HEADER;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@SqlGroup({
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_CLASS, scripts = "classpath:db/create_db.sql"),
+        @Sql(executionPhase = ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:db/populate_data.sql"),
+        @Sql(executionPhase = ExecutionPhase.AFTER_TEST_METHOD, scripts = "classpath:db/clear_data.sql")
+})
+class IdempotencyFilterTest {
+
+    private static final String NEW_GIFT = """
+            {"title": "New gift", "description": "New description", "importance": "HIGH"}""";
+
+    private static final String HIGH_IMPORTANCE = """
+            {"importance": "HIGH"}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SimilarGiftFinder similarGiftFinder;
+
+    @Test
+    void create_retryReplaysResponse() throws Exception {
+        MvcResult first = mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(NEW_GIFT))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        MvcResult retry = mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(NEW_GIFT))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(REPLAYED_HEADER, "true"))
+                .andReturn();
+
+        assertEquals(first.getResponse().getContentAsString(), retry.getResponse().getContentAsString());
+        assertEquals(first.getResponse().getHeader("Location"), retry.getResponse().getHeader("Location"));
+        mockMvc.perform(get(REST_GIFT_URL))
+                .andExpect(jsonPath("$", hasSize(3)));
+    }
+
+    @Test
+    void create_differentKeys() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(NEW_GIFT))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(NEW_GIFT.replace("New gift", "Another present")))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(REPLAYED_HEADER));
+
+        mockMvc.perform(get(REST_GIFT_URL))
+                .andExpect(jsonPath("$", hasSize(4)));
+    }
+
+    @Test
+    void create_keyReusedWithDifferentBody() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(NEW_GIFT))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(NEW_GIFT.replace("New gift", "Other gift")))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void updateImportance_dryRunThenRealWithSameKey() throws Exception {
+        mockMvc.perform(patch(REST_GIFT_URL + "?ids=1&dryRun=true")
+                        .header(IDEMPOTENCY_KEY_HEADER, "patch-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(HIGH_IMPORTANCE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dryRun").value(true));
+
+        mockMvc.perform(patch(REST_GIFT_URL + "?ids=1")
+                        .header(IDEMPOTENCY_KEY_HEADER, "patch-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(HIGH_IMPORTANCE))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(header().doesNotExist(REPLAYED_HEADER));
+        mockMvc.perform(get(REST_GIFT_URL + "/1"))
+                .andExpect(jsonPath("$.importance").value("MEDIUM"));
+
+        mockMvc.perform(patch(REST_GIFT_URL + "?ids=1")
+                        .header(IDEMPOTENCY_KEY_HEADER, "patch-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(HIGH_IMPORTANCE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dryRun").value(false));
+        mockMvc.perform(get(REST_GIFT_URL + "/1"))
+                .andExpect(jsonPath("$.importance").value("HIGH"));
+    }
+
+    @Test
+    void updateImportance_differentIdsWithSameKey() throws Exception {
+        mockMvc.perform(patch(REST_GIFT_URL + "?ids=1")
+                        .header(IDEMPOTENCY_KEY_HEADER, "patch-3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(HIGH_IMPORTANCE))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch(REST_GIFT_URL + "?ids=2")
+                        .header(IDEMPOTENCY_KEY_HEADER, "patch-3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(HIGH_IMPORTANCE))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void updateImportance_parameterOrderIgnored() throws Exception {
+        mockMvc.perform(patch(REST_GIFT_URL + "?ids=1&dryRun=true")
+                        .header(IDEMPOTENCY_KEY_HEADER, "patch-4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(HIGH_IMPORTANCE))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch(REST_GIFT_URL + "?dryRun=true&ids=1")
+                        .header(IDEMPOTENCY_KEY_HEADER, "patch-4")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(HIGH_IMPORTANCE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(REPLAYED_HEADER, "true"));
+    }
+
+    @Test
+    void create_forceAfterConflictWithSameKey() throws Exception {
+        similarGiftFinder.invalidate();
+        String duplicate = NEW_GIFT.replace("New gift", "Gift1");
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-5")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(duplicate))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(post(REST_GIFT_URL + "?force=true")
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-5")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(duplicate))
+                .andExpect(status().isUnprocessableEntity());
+
+        mockMvc.perform(post(REST_GIFT_URL + "?force=true")
+                        .header(IDEMPOTENCY_KEY_HEADER, "create-6")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(duplicate))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void create_blankKey() throws Exception {
+        mockMvc.perform(post(REST_GIFT_URL)
+                        .header(IDEMPOTENCY_KEY_HEADER, " ")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(NEW_GIFT))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,107 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryIdempotencyStoreTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final InMemoryIdempotencyStore store =
+            new InMemoryIdempotencyStore(Duration.ofHours(1), Duration.ofMinutes(5), 2, clock);
+
+    @Test
+    void reserve_onlyOnce() {
+        assertTrue(store.reserve("key", "fingerprint"));
+        assertFalse(store.reserve("key", "fingerprint"));
+        assertTrue(store.find("key").isEmpty());
+
+        store.save("key", response());
+        assertEquals(201, store.find("key").orElseThrow().status());
+        assertFalse(store.reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void release_allowsRetry() {
+        assertTrue(store.reserve("key", "fingerprint"));
+        store.release("key");
+
+        assertTrue(store.reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void reserve_abandonedReservationTakenOver() {
+        assertTrue(store.reserve("key", "fingerprint"));
+
+        clock.advance(Duration.ofMinutes(6));
+
+        assertTrue(store.reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void find_expiredResponse() {
+        store.reserve("key", "fingerprint");
+        store.save("key", response());
+
+        clock.advance(Duration.ofMinutes(61));
+
+        assertTrue(store.find("key").isEmpty());
+        assertTrue(store.reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void evictExpired() {
+        store.save("old", response());
+        clock.advance(Duration.ofMinutes(61));
+        store.save("new", response());
+
+        store.evictExpired();
+
+        assertEquals(1, store.size());
+        assertTrue(store.find("new").isPresent());
+    }
+
+    @Test
+    void save_evictsEldestWhenFull() {
+        store.save("first", response());
+        store.save("second", response());
+        store.save("third", response());
+
+        assertEquals(2, store.size());
+        assertTrue(store.find("first").isEmpty());
+    }
+
+    private IdempotentResponse response() {
+        return new IdempotentResponse("fingerprint", 201, "application/json", null, new byte[0], clock.instant());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
\ No newline at end of file
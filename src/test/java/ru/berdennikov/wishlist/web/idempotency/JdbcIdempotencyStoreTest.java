@@ -0,0 +1,119 @@
+package ru.berdennikov.wishlist.web.idempotency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcIdempotencyStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("db/create_db.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        store = store(NOW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void reserve_onlyOneInstance() {
+        JdbcIdempotencyStore otherInstance = store(NOW);
+
+        assertTrue(store.reserve("key", "fingerprint"));
+        assertFalse(otherInstance.reserve("key", "fingerprint"));
+        assertTrue(otherInstance.find("key").isEmpty());
+    }
+
+    @Test
+    void save_completesReservation() {
+        store.reserve("key", "fingerprint");
+
+        store.save("key", response(NOW));
+
+        IdempotentResponse stored = store(NOW).find("key").orElseThrow();
+        assertEquals("fingerprint", stored.fingerprint());
+        assertEquals(201, stored.status());
+        assertEquals("/api/gifts/3", stored.location());
+        assertArrayEquals("{\"id\":3}".getBytes(), stored.body());
+        assertEquals(1, count());
+        assertFalse(store.reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void release_allowsOtherInstance() {
+        store.reserve("key", "fingerprint");
+
+        store.release("key");
+
+        assertTrue(store(NOW).reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void reserve_abandonedReservationTakenOver() {
+        store.reserve("key", "fingerprint");
+
+        assertFalse(store(NOW.plus(Duration.ofMinutes(4))).reserve("key", "fingerprint"));
+        assertTrue(store(NOW.plus(Duration.ofMinutes(6))).reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void find_expiredResponse() {
+        store.reserve("key", "fingerprint");
+        store.save("key", response(NOW));
+        JdbcIdempotencyStore later = store(NOW.plus(Duration.ofMinutes(61)));
+
+        assertTrue(later.find("key").isEmpty());
+        assertTrue(later.reserve("key", "fingerprint"));
+    }
+
+    @Test
+    void evictExpired() {
+        store.reserve("abandoned", "fingerprint");
+        store.save("old", response(NOW));
+        JdbcIdempotencyStore later = store(NOW.plus(Duration.ofMinutes(30)));
+        later.save("new", response(NOW.plus(Duration.ofMinutes(30))));
+
+        store(NOW.plus(Duration.ofMinutes(61))).evictExpired();
+
+        assertEquals(1, count());
+        assertTrue(later.find("new").isPresent());
+    }
+
+    private JdbcIdempotencyStore store(Instant now) {
+        return new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ofMinutes(5),
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static IdempotentResponse response(Instant createdAt) {
+        return new IdempotentResponse("fingerprint", 201, "application/json", "/api/gifts/3",
+                "{\"id\":3}".getBytes(), createdAt);
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_key", Integer.class);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package ru.berdennikov.wishlist.web.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    void parse_noHeader() {
+        ByteRange range = ByteRange.parse(null, LENGTH).orElseThrow();
+        assertEquals(new ByteRange(0, 999), range);
+        assertFalse(range.isPartial(LENGTH));
+    }
+
+    @Test
+    void parse_closedRange() {
+        ByteRange range = ByteRange.parse("bytes=100-199", LENGTH).orElseThrow();
+        assertEquals(new ByteRange(100, 199), range);
+        assertEquals(100, range.length());
+        assertTrue(range.isPartial(LENGTH));
+    }
+
+    @Test
+    void parse_openRange() {
+        assertEquals(new ByteRange(900, 999), ByteRange.parse("bytes=900-", LENGTH).orElseThrow());
+    }
+
+    @Test
+    void parse_suffixRange() {
+        assertEquals(new ByteRange(950, 999), ByteRange.parse("bytes=-50", LENGTH).orElseThrow());
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=-5000", LENGTH).orElseThrow());
+    }
+
+    @Test
+    void parse_endBeyondFile() {
+        assertEquals(new ByteRange(500, 999), ByteRange.parse("bytes=500-5000", LENGTH).orElseThrow());
+    }
+
+    @Test
+    void parse_unsatisfiable() {
+        assertEquals(Optional.empty(), ByteRange.parse("bytes=1000-", LENGTH));
+        assertEquals(Optional.empty(), ByteRange.parse("bytes=-0", LENGTH));
+    }
+
+    @Test
+    void parse_ignoresMultipleAndMalformedRanges() {
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=0-1,5-6", LENGTH).orElseThrow());
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("items=0-1", LENGTH).orElseThrow());
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=abc", LENGTH).orElseThrow());
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=20-10", LENGTH).orElseThrow());
+    }
+}
\ No newline at end of file
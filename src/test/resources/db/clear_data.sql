@@ -1,2 +1,5 @@
+DELETE FROM gift_image;
+DELETE FROM gift_archive;
 DELETE FROM gift;
-ALTER TABLE gift ALTER COLUMN id RESTART WITH 1;
\ No newline at end of file
+ALTER TABLE gift ALTER COLUMN id RESTART WITH 1;
+ALTER TABLE gift_image ALTER COLUMN id RESTART WITH 1;
\ No newline at end of file
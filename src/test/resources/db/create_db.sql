@@ -3,5 +3,40 @@ CREATE TABLE IF NOT EXISTS gift
     id          BIGSERIAL PRIMARY KEY,
     title       VARCHAR(200) NOT NULL,
     description TEXT,
-    importance  VARCHAR(50)
+    importance  VARCHAR(50),
+    sort_key    VARCHAR(255),
+    deleted_at  TIMESTAMP WITH TIME ZONE
+);
+
+CREATE TABLE IF NOT EXISTS gift_archive
+(
+    id          BIGINT PRIMARY KEY,
+    title       VARCHAR(200) NOT NULL,
+    description TEXT,
+    importance  VARCHAR(50),
+    sort_key    VARCHAR(255),
+    deleted_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    archived_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS gift_image
+(
+    id           BIGSERIAL PRIMARY KEY,
+    gift_id      BIGINT NOT NULL,
+    content_hash CHAR(64) NOT NULL,
+    content_type VARCHAR(50) NOT NULL,
+    size_bytes   BIGINT NOT NULL,
+    created_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+    UNIQUE (gift_id, content_hash)
+);
+
+CREATE TABLE IF NOT EXISTS idempotency_key
+(
+    idempotency_key VARCHAR(512) PRIMARY KEY,
+    fingerprint     VARCHAR(64) NOT NULL,
+    status          INTEGER,
+    content_type    VARCHAR(255),
+    location        VARCHAR(2048),
+    body            VARBINARY,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL
 );
\ No newline at end of file
@@ -1,3 +1,3 @@
-INSERT INTO gift(title, description, importance)
-VALUES ('Gift1', 'Description1',  'MEDIUM'),
-       ('Gift2', 'Description2', 'HIGH');
\ No newline at end of file
+INSERT INTO gift(title, description, importance, sort_key)
+VALUES ('Gift1', 'Description1',  'MEDIUM', 'V'),
+       ('Gift2', 'Description2', 'HIGH', 'V');
\ No newline at end of file